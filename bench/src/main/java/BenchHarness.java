@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Implementation of {@link bench.Harness} on top of the disassembler classes.
+ */
+public class BenchHarness implements bench.Harness {
+    private final DecodedInstruction instruction = new DecodedInstruction();
+    private final ByteOutput lines = new ByteOutput(1 << 20);
+
+    @Override
+    public int disassemble(int[] words) {
+        lines.reset();
+        try {
+            for (int i = 0; i < words.length; i++) {
+                RiscVDisassembler.RV32.decode(4L * i, words[i], instruction);
+                RiscVDisassembler.appendInstruction(lines, instruction, SymbolIndex.EMPTY, LabelSet.EMPTY);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines.size();
+    }
+
+    @Override
+    public int decode(int[] words) {
+        int result = 0;
+        for (int i = 0; i < words.length; i++) {
+            RiscVDisassembler.RV32.decode(4L * i, words[i], instruction);
+            result += instruction.getMnemonic().ordinal() + instruction.getImm();
+        }
+        return result;
+    }
+
+    @Override
+    public Object buildSymbols(long[] addresses) {
+        SymbolIndex.Builder builder = new SymbolIndex.Builder();
+        for (int i = 0; i < addresses.length; i++) {
+            builder.add(addresses[i], i);
+        }
+        return builder.build(offset -> "f" + offset);
+    }
+
+    @Override
+    public int lookup(Object symbols, long[] probes) {
+        SymbolIndex index = (SymbolIndex) symbols;
+        int hits = 0;
+        for (long probe : probes) {
+            if (index.indexOf(probe) >= 0) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Override
+    public int readInts(String filename, boolean mapped, int count) throws IOException {
+        try (DataReader reader = mapped ? new MappedDataReader(filename) : new DataBufferedReader(filename)) {
+            reader.enableLittleEndian();
+            int result = 0;
+            for (int i = 0; i < count; i++) {
+                result += reader.readInt(4);
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public int readBlocks(String filename, boolean mapped, int count) throws IOException {
+        try (DataReader reader = mapped ? new MappedDataReader(filename) : new DataBufferedReader(filename)) {
+            ByteBuffer block = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            IntBuffer words = block.asIntBuffer();
+            int result = 0;
+            for (int left = count; left > 0; left -= words.limit()) {
+                block.clear().limit(4 * Math.min(left, block.capacity() / 4));
+                reader.readFully(block);
+                words.clear().limit(block.limit() / 4);
+                while (words.hasRemaining()) {
+                    result += words.get();
+                }
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public void disassembleElf(String filename, OutputStream out, int threads) throws IOException {
+        try (ElfReader reader = new ElfReader(filename)) {
+            reader.setThreads(threads);
+            reader.disassemble(new ByteOutput(out));
+        }
+    }
+}
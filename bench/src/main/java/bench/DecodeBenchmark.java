@@ -0,0 +1,42 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-instruction cost of decoding and rendering, by instruction class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(DecodeBenchmark.WORDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBenchmark {
+    static final int WORDS = 4096;
+
+    @Param({"R", "I", "S", "B", "U", "J", "M"})
+    public String kind;
+
+    private Harness harness;
+    private int[] words;
+
+    @Setup
+    public void setup() {
+        harness = Harness.load();
+        words = SyntheticElf.words(new Random(42), kind.charAt(0), WORDS);
+    }
+
+    @Benchmark
+    public int disassemble() {
+        return harness.disassemble(words);
+    }
+
+    @Benchmark
+    public int decode() {
+        return harness.decode(words);
+    }
+}
@@ -0,0 +1,47 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end disassembly of synthetic ELF files into a discarding writer.
+ * Files are generated once per trial, the 1 GB one needs as much free space in the temp directory.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ElfBenchmark {
+    @Param({"1", "16", "256", "1024"})
+    public int megabytes;
+
+    @Param({"1"})
+    public int threads;
+
+    private Harness harness;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        harness = Harness.load();
+        file = Files.createTempFile("elf-bench", ".elf");
+        SyntheticElf.write(file, (long) megabytes << 20, 64, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void disassemble() throws IOException {
+        harness.disassembleElf(file.toString(), OutputStream.nullOutputStream(), threads);
+    }
+}
@@ -0,0 +1,52 @@
+package bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Operations under measurement. The disassembler lives in the unnamed package, which named packages
+ * cannot import, and JMH does not accept benchmarks in the unnamed package. The implementation
+ * is the unnamed-package class {@code BenchHarness}, loaded once by name.
+ */
+public interface Harness {
+    /**
+     * Decodes every word and renders it as a listing line into a reused in-memory output.
+     * Returns the number of bytes rendered.
+     */
+    int disassemble(int[] words);
+
+    /**
+     * Decodes every word into the structured holder only. Returns a value to keep the work alive.
+     */
+    int decode(int[] words);
+
+    /**
+     * Builds a symbol index and returns it as an opaque handle for {@link #lookup}.
+     */
+    Object buildSymbols(long[] addresses);
+
+    /**
+     * Probes the index once per address. Returns the number of exact hits.
+     */
+    int lookup(Object symbols, long[] probes);
+
+    /**
+     * Reads {@code count} little-endian words through {@code DataBufferedReader} or {@code MappedDataReader}.
+     */
+    int readInts(String filename, boolean mapped, int count) throws IOException;
+
+    /**
+     * Reads the same words in blocks with {@code readFully} and sums them through an {@code IntBuffer} view.
+     */
+    int readBlocks(String filename, boolean mapped, int count) throws IOException;
+
+    void disassembleElf(String filename, OutputStream out, int threads) throws IOException;
+
+    static Harness load() {
+        try {
+            return (Harness) Class.forName("BenchHarness").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Benchmark harness is not on the class path", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential word throughput of the stream and memory-mapped readers over a 16 MB file,
+ * one {@code readInt(4)} call per word or in 64 KB blocks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ReaderBenchmark.WORDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReaderBenchmark {
+    static final int WORDS = 4 << 20;
+
+    @Param({"stream", "mapped"})
+    public String reader;
+
+    private Harness harness;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        harness = Harness.load();
+        file = Files.createTempFile("reader-bench", ".bin");
+        byte[] data = new byte[4 * WORDS];
+        new Random(42).nextBytes(data);
+        Files.write(file, data);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int readInt() throws IOException {
+        return harness.readInts(file.toString(), reader.equals("mapped"), WORDS);
+    }
+
+    @Benchmark
+    public int readBlocks() throws IOException {
+        return harness.readBlocks(file.toString(), reader.equals("mapped"), WORDS);
+    }
+}
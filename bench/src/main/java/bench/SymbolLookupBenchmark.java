@@ -0,0 +1,49 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-instruction symbol probe for different symbol table sizes.
+ * A tenth of the probes hit a symbol, like function entries in a listing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SymbolLookupBenchmark.PROBES)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SymbolLookupBenchmark {
+    static final int PROBES = 4096;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int symbols;
+
+    private Harness harness;
+    private Object index;
+    private long[] probes;
+
+    @Setup
+    public void setup() {
+        harness = Harness.load();
+        Random random = new Random(42);
+        long[] addresses = new long[symbols];
+        for (int i = 0; i < symbols; i++) {
+            addresses[i] = SyntheticElf.TEXT_ADDRESS + 64L * i;
+        }
+        index = harness.buildSymbols(addresses);
+        probes = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            long address = addresses[random.nextInt(symbols)];
+            probes[i] = random.nextInt(10) == 0 ? address : address + 4 + 4 * random.nextInt(15);
+        }
+    }
+
+    @Benchmark
+    public int lookup() {
+        return harness.lookup(index, probes);
+    }
+}
@@ -0,0 +1,159 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Generates random valid RV32IM instruction words and little-endian ELF32 files
+ * with a .text section, a symbol table and a shared string table.
+ */
+public final class SyntheticElf {
+    public static final long TEXT_ADDRESS = 0x10000;
+
+    private static final int[] BRANCH_FUNCT3 = {0b000, 0b001, 0b100, 0b101, 0b110, 0b111};
+    private static final int[] LOAD_FUNCT3 = {0b000, 0b001, 0b010, 0b100, 0b101};
+    private static final int[] OP_IMM_FUNCT3 = {0b000, 0b010, 0b011, 0b100, 0b110, 0b111};
+
+    private SyntheticElf() {
+    }
+
+    /**
+     * Returns a random word of the given class: R, I, S, B, U, J, or M for a mix of all of them.
+     */
+    public static int word(Random random, char kind) {
+        int rd = random.nextInt(32) << 7;
+        int rs1 = random.nextInt(32) << 15;
+        int rs2 = random.nextInt(32) << 20;
+        int imm = random.nextInt() & 0xfff00000;
+        switch (kind) {
+            case 'R': {
+                int funct3 = random.nextInt(8);
+                int funct7 = random.nextBoolean() ? 0 : funct3 == 0 || funct3 == 5 ? 0b0100000 : 0b0000001;
+                return funct7 << 25 | rs2 | rs1 | funct3 << 12 | rd | 0b0110011;
+            }
+            case 'I':
+                switch (random.nextInt(3)) {
+                    case 0:
+                        return imm | rs1 | pick(random, LOAD_FUNCT3) << 12 | rd | 0b0000011;
+                    case 1:
+                        return imm | rs1 | rd | 0b1100111;
+                    default:
+                        return imm | rs1 | pick(random, OP_IMM_FUNCT3) << 12 | rd | 0b0010011;
+                }
+            case 'S':
+                return imm & 0xfe000000 | rs2 | rs1 | random.nextInt(3) << 12 | rd | 0b0100011;
+            case 'B':
+                return imm & 0xfe000000 | rs2 | rs1 | pick(random, BRANCH_FUNCT3) << 12 | rd | 0b1100011;
+            case 'U':
+                return random.nextInt() & 0xfffff000 | rd | (random.nextBoolean() ? 0b0110111 : 0b0010111);
+            case 'J':
+                return random.nextInt() & 0xfffff000 | rd | 0b1101111;
+            case 'M':
+                return word(random, "RRRIIIIISSBBUJ".charAt(random.nextInt(14)));
+            default:
+                throw new IllegalArgumentException("Unknown instruction class: " + kind);
+        }
+    }
+
+    private static int pick(Random random, int[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    public static int[] words(Random random, char kind, int count) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = word(random, kind);
+        }
+        return result;
+    }
+
+    /**
+     * Writes an ELF file with {@code textSize} bytes of mixed instructions and a function symbol
+     * every {@code symbolStride} instructions.
+     */
+    public static void write(Path file, long textSize, int symbolStride, long seed) throws IOException {
+        Random random = new Random(seed);
+        int commands = (int) (textSize / 4);
+        int symbols = commands / symbolStride + 1;
+
+        ByteBuffer strings = ByteBuffer.allocate(32 + 16 * symbols);
+        strings.put((byte) 0);
+        int textName = putString(strings, ".text");
+        int symtabName = putString(strings, ".symtab");
+        int strtabName = putString(strings, ".shstrtab");
+        ByteBuffer symtab = ByteBuffer.allocate(16 * (symbols + 1)).order(ByteOrder.LITTLE_ENDIAN);
+        symtab.put(new byte[16]);
+        for (int i = 0; i < symbols; i++) {
+            symtab.putInt(putString(strings, "func_" + i))
+                    .putInt((int) (TEXT_ADDRESS + 4L * i * symbolStride))
+                    .putInt(0)
+                    .put((byte) 0x12)
+                    .put((byte) 0)
+                    .putShort((short) 1);
+        }
+        strings.flip();
+        symtab.flip();
+
+        long textOffset = 52;
+        long symtabOffset = textOffset + 4L * commands;
+        long strtabOffset = symtabOffset + symtab.remaining();
+        long shoff = (strtabOffset + strings.remaining() + 3) & ~3;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(52).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(new byte[]{0x7f, 'E', 'L', 'F', 1, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0})
+                    .putShort((short) 2).putShort((short) 0xf3).putInt(1)
+                    .putInt((int) TEXT_ADDRESS).putInt(0).putInt((int) shoff).putInt(0)
+                    .putShort((short) 52).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) 40).putShort((short) 4).putShort((short) 3);
+            header.flip();
+            channel.write(header);
+
+            ByteBuffer text = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < commands; i++) {
+                text.putInt(word(random, 'M'));
+                if (!text.hasRemaining()) {
+                    writeFully(channel, text);
+                }
+            }
+            writeFully(channel, text);
+            channel.write(symtab);
+            channel.write(strings);
+
+            ByteBuffer sections = ByteBuffer.allocate(4 * 40).order(ByteOrder.LITTLE_ENDIAN);
+            sections.put(new byte[40]);
+            putSection(sections, textName, 1, 6, TEXT_ADDRESS, textOffset, 4L * commands, 0, 0);
+            putSection(sections, symtabName, 2, 0, 0, symtabOffset, 16L * (symbols + 1), 3, 16);
+            putSection(sections, strtabName, 3, 0, 0, strtabOffset, strings.limit(), 0, 0);
+            sections.flip();
+            channel.write(sections, shoff);
+        }
+    }
+
+    private static int putString(ByteBuffer strings, String value) {
+        int offset = strings.position();
+        strings.put(value.getBytes(StandardCharsets.US_ASCII)).put((byte) 0);
+        return offset;
+    }
+
+    private static void putSection(ByteBuffer sections, int name, int type, int flags, long addr,
+                                   long offset, long size, int link, int entsize) {
+        sections.putInt(name).putInt(type).putInt(flags).putInt((int) addr).putInt((int) offset)
+                .putInt((int) size).putInt(link).putInt(0).putInt(4).putInt(entsize);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
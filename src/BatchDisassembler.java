@@ -0,0 +1,191 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Disassembles many ELF files in one process on a bounded pool of workers.
+ * A failure is reported for its file and does not stop the rest of the batch.
+ */
+public class BatchDisassembler {
+    private static final String OUTPUT_EXTENSION = ".asm";
+    private static final byte[] MAGIC_NUMBERS = new byte[]{0x7f, 0x45, 0x4c, 0x46};
+
+    private final List<Path> inputs = new ArrayList<>();
+    private final List<Path> outputs = new ArrayList<>();
+    /**
+     * Input of every output path added so far, both absolute and normalized.
+     */
+    private final Map<Path, Path> inputsByOutput = new HashMap<>();
+    private final Path outputDir;
+    private final PrintStream log;
+    private DisassemblyCache cache;
+    private DisassemblyStats stats;
+    private boolean numericRegisters;
+
+    /**
+     * @param outputDir directory for listings, or null to write each listing next to its input
+     */
+    public BatchDisassembler(Path outputDir, PrintStream log) {
+        this.outputDir = outputDir;
+        this.log = log;
+    }
+
+    /**
+     * Sets the cache for listings, or null to always decode.
+     */
+    public void setCache(DisassemblyCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Sets the statistics shared by all files, or null to count nothing.
+     */
+    public void setStats(DisassemblyStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Prints registers as {@code x0..x31} in all listings.
+     */
+    public void setNumericRegisters(boolean numericRegisters) {
+        this.numericRegisters = numericRegisters;
+    }
+
+    /**
+     * Adds a file, every ELF file under a directory, or every path listed in a file given as {@code @list}.
+     * A file added twice is disassembled once. Throws if two different files would be written to the same
+     * listing, such as {@code a/fw.elf} and {@code b/fw.elf} with an output directory.
+     */
+    public void add(String argument) throws IOException {
+        if (argument.startsWith("@")) {
+            for (String line : Files.readAllLines(Path.of(argument.substring(1)))) {
+                if (!line.isBlank()) {
+                    add(line.strip());
+                }
+            }
+            return;
+        }
+
+        Path path = Path.of(argument);
+        if (!Files.isDirectory(path)) {
+            addFile(path, path.getFileName());
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                if (Files.isRegularFile(file) && isElf(file)) {
+                    addFile(file, path.relativize(file));
+                }
+            }
+        }
+    }
+
+    private void addFile(Path file, Path relative) throws IOException {
+        Path output = outputDir == null
+                ? file.resolveSibling(file.getFileName() + OUTPUT_EXTENSION)
+                : outputDir.resolve(relative + OUTPUT_EXTENSION);
+        Path input = file.toAbsolutePath().normalize();
+        Path previous = inputsByOutput.putIfAbsent(output.toAbsolutePath().normalize(), input);
+        if (previous != null) {
+            if (previous.equals(input)) {
+                return;
+            }
+            throw new IOException("Both " + previous + " and " + input + " would be written to " + output);
+        }
+        inputs.add(file);
+        outputs.add(output);
+    }
+
+    private static boolean isElf(Path file) {
+        try (InputStream input = Files.newInputStream(file)) {
+            byte[] magic = input.readNBytes(MAGIC_NUMBERS.length);
+            for (int i = 0; i < MAGIC_NUMBERS.length; i++) {
+                if (i >= magic.length || magic[i] != MAGIC_NUMBERS[i]) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public int size() {
+        return inputs.size();
+    }
+
+    /**
+     * Runs the batch and returns the number of files that failed.
+     */
+    public int run(int workers) throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                Path input = inputs.get(i);
+                Path output = outputs.get(i);
+                tasks.add(pool.submit(() -> {
+                    String error = disassemble(input, output);
+                    if (error != null) {
+                        failures.incrementAndGet();
+                        log.println(input + ": " + error);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return failures.get();
+    }
+
+    /**
+     * Returns null on success or a message. A partially written listing is removed.
+     */
+    private String disassemble(Path input, Path output) {
+        try (ElfReader reader = new ElfReader(input.toString())) {
+            reader.setStats(stats);
+            reader.setNumericRegisters(numericRegisters);
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(output, CREATE, TRUNCATE_EXISTING, WRITE)) {
+                if (cache != null) {
+                    cache.disassemble(reader, channel);
+                } else {
+                    reader.disassemble(new ByteOutput(channel));
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(output);
+                throw e;
+            }
+            return null;
+        } catch (FileNotFoundException e) {
+            return "Input file not found";
+        } catch (IOException e) {
+            return e.getMessage();
+        } catch (RuntimeException e) {
+            return "Invalid file: " + e;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.IOException;
+
+/**
+ * Writes control-flow graphs in a compact binary format. All numbers are little-endian.
+ * <pre>
+ * header:   "RVCF", int version
+ * function: long start, long end, int nameLength, byte[nameLength] name,
+ *           int blockCount, int edgeCount, block[blockCount], edge[edgeCount]
+ * block:    long start, int length in bytes, int instructions
+ * edge:     int source block, long target address, byte kind (ControlFlowGraph.EDGE_*)
+ * </pre>
+ * Functions follow each other in address order until the end of the file.
+ */
+public class BinaryCfgWriter implements ControlFlowGraph.Writer {
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = {'R', 'V', 'C', 'F'};
+
+    private final ByteOutput out;
+    private boolean started;
+
+    public BinaryCfgWriter(ByteOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(ControlFlowGraph function) throws IOException {
+        start();
+        String name = function.getName();
+        out.putLong(function.getStart()).putLong(function.getEnd()).putInt(name.length()).put(name);
+        out.putInt(function.getBlockCount()).putInt(function.getEdgeCount());
+        for (int block = 0; block < function.getBlockCount(); block++) {
+            out.putLong(function.getBlockStart(block))
+                    .putInt(function.getBlockLength(block))
+                    .putInt(function.getBlockInstructions(block));
+        }
+        for (int edge = 0; edge < function.getEdgeCount(); edge++) {
+            out.putInt(function.getEdgeSource(edge)).putLong(function.getEdgeTarget(edge));
+            out.put((char) function.getEdgeKind(edge));
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        start();
+        out.flush();
+    }
+
+    private void start() throws IOException {
+        if (!started) {
+            out.put(MAGIC).putInt(VERSION);
+            started = true;
+        }
+    }
+}
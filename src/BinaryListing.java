@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory-mapped binary listing written by {@link BinaryListingWriter}. Records are read by index,
+ * and the index of an address is found by a binary search over the fixed-width records.
+ * Mnemonic ids are resolved through the dictionary in the file, so files stay readable when mnemonics
+ * are added. After opening, all methods may be called from several threads.
+ */
+public class BinaryListing implements AutoCloseable {
+    private final MappedDataReader data;
+    private final boolean rv64;
+    private final long base;
+    private final String[] mnemonicNames;
+    private final Mnemonic[] mnemonics;
+    private final SymbolIndex symbols;
+    private final long recordsOffset;
+    private final long size;
+
+    public BinaryListing(String filename) throws IOException {
+        data = new MappedDataReader(filename);
+        try {
+            data.enableLittleEndian();
+            for (byte b : BinaryListingWriter.MAGIC) {
+                if (data.read() != b) {
+                    throw new IOException("Not a binary listing");
+                }
+            }
+            if (data.readInt(4) != BinaryListingWriter.VERSION) {
+                throw new IOException("Unsupported binary listing version");
+            }
+            rv64 = (data.readInt(4) & BinaryListingWriter.FLAG_RV64) != 0;
+            base = data.readLong(8);
+
+            Map<String, Mnemonic> known = new HashMap<>();
+            for (Mnemonic mnemonic : Mnemonic.values()) {
+                known.put(mnemonic.getName(), mnemonic);
+            }
+            mnemonicNames = new String[data.readInt(4)];
+            mnemonics = new Mnemonic[mnemonicNames.length];
+            for (int id = 0; id < mnemonicNames.length; id++) {
+                mnemonicNames[id] = readName(data.read());
+                mnemonics[id] = known.getOrDefault(mnemonicNames[id], Mnemonic.UNKNOWN);
+            }
+
+            int symbolCount = data.readInt(4);
+            List<String> names = new ArrayList<>(symbolCount);
+            SymbolIndex.Builder builder = new SymbolIndex.Builder();
+            for (int i = 0; i < symbolCount; i++) {
+                long address = data.readLong(8);
+                names.add(readName(data.readInt(4)));
+                builder.add(address, i);
+            }
+            symbols = builder.build(names::get);
+
+            long header = data.getPosition();
+            recordsOffset = header + (-header & (BinaryListingWriter.RECORD_SIZE - 1));
+            size = (data.size() - recordsOffset) / BinaryListingWriter.RECORD_SIZE;
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Number of records.
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isRV64() {
+        return rv64;
+    }
+
+    public SymbolIndex getSymbols() {
+        return symbols;
+    }
+
+    public long getAddress(long index) throws IOException {
+        return base + Integer.toUnsignedLong(data.getInt(record(index)));
+    }
+
+    /**
+     * Instruction bits, the 16-bit parcel of a compressed instruction, or the value of a data record.
+     */
+    public int getRaw(long index) throws IOException {
+        return data.getInt(record(index) + 4);
+    }
+
+    public int getImm(long index) throws IOException {
+        return data.getInt(record(index) + 8);
+    }
+
+    /**
+     * Mnemonic id as stored, {@link BinaryListingWriter#DATA} for data.
+     */
+    public int getMnemonicId(long index) throws IOException {
+        return data.getByte(record(index) + 12);
+    }
+
+    public boolean isData(long index) throws IOException {
+        return getMnemonicId(index) == BinaryListingWriter.DATA;
+    }
+
+    /**
+     * Returns the mnemonic, or {@link Mnemonic#UNKNOWN} for data and names this version does not know.
+     */
+    public Mnemonic getMnemonic(long index) throws IOException {
+        int id = getMnemonicId(index);
+        return id < mnemonics.length ? mnemonics[id] : Mnemonic.UNKNOWN;
+    }
+
+    /**
+     * Mnemonic name from the dictionary of the file, or null for data.
+     */
+    public String getMnemonicName(long index) throws IOException {
+        int id = getMnemonicId(index);
+        return id < mnemonicNames.length ? mnemonicNames[id] : null;
+    }
+
+    /**
+     * One of the {@code RiscVDisassembler.FORMAT_*} constants, or the size in bytes of a data record.
+     */
+    public int getFormat(long index) throws IOException {
+        return data.getByte(record(index) + 13);
+    }
+
+    public int getRd(long index) throws IOException {
+        return data.getShort(record(index) + 14) & 0b11111;
+    }
+
+    public int getRs1(long index) throws IOException {
+        return data.getShort(record(index) + 14) >>> 5 & 0b11111;
+    }
+
+    public int getRs2(long index) throws IOException {
+        return data.getShort(record(index) + 14) >>> 10 & 0b11111;
+    }
+
+    /**
+     * Size of the instruction or data item in bytes.
+     */
+    public int getLength(long index) throws IOException {
+        if (isData(index)) {
+            return getFormat(index);
+        }
+        return RiscVDisassembler.isFullSize(getRaw(index)) ? 4 : 2;
+    }
+
+    /**
+     * Returns the index of the last record at or before the address, or -1.
+     */
+    public long floorIndex(long address) throws IOException {
+        long low = 0;
+        long high = size - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int cmp = Long.compareUnsigned(getAddress(mid), address);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return high;
+    }
+
+    private long record(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + size);
+        }
+        return recordsOffset + index * BinaryListingWriter.RECORD_SIZE;
+    }
+
+    private String readName(int length) throws IOException {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) data.read();
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public void close() throws IOException {
+        data.close();
+    }
+}
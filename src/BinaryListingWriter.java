@@ -0,0 +1,77 @@
+import java.io.IOException;
+
+/**
+ * Writes decoded instructions and data as fixed-width records, so a listing can be read back by index
+ * without parsing text. All numbers are little-endian.
+ * <pre>
+ * header:   "RVIS", int version, int flags (bit 0: RV64), long base address,
+ *           int mnemonicCount, mnemonic[mnemonicCount], int symbolCount, symbol[symbolCount],
+ *           zero bytes up to a multiple of 16
+ * mnemonic: byte nameLength, byte[nameLength] name; the index is the mnemonic id in records
+ * symbol:   long address, int nameLength, byte[nameLength] name; sorted by address
+ * record:   int address - base, int raw, int immediate, byte mnemonic id, byte format,
+ *           short rd | rs1 &lt;&lt; 5 | rs2 &lt;&lt; 10
+ * </pre>
+ * Records are 16 bytes and follow in address order until the end of the file. A record with mnemonic id
+ * {@link #DATA} holds bytes that were not decoded: {@code raw} is the value and {@code format} the size.
+ * Formats are the {@code RiscVDisassembler.FORMAT_*} constants and tell which operands are meaningful.
+ */
+public class BinaryListingWriter implements InstructionVisitor {
+    public static final int VERSION = 2;
+    public static final int RECORD_SIZE = 16;
+    public static final int DATA = 0xff;
+    public static final int FLAG_RV64 = 1;
+    static final byte[] MAGIC = {'R', 'V', 'I', 'S'};
+
+    private final ByteOutput out;
+    private final long base;
+
+    /**
+     * Writes the header. Addresses of the records must lie in {@code [base, end)}, at most 4 GB apart.
+     */
+    public BinaryListingWriter(ByteOutput out, boolean rv64, long base, long end, SymbolIndex symbols)
+            throws IOException {
+        if (Long.compareUnsigned(end - base, 1L << 32) > 0) {
+            throw new IOException("Executable sections span more than 4 GB");
+        }
+        this.out = out;
+        this.base = base;
+        long start = out.getBytesWritten();
+        out.put(MAGIC).putInt(VERSION).putInt(rv64 ? FLAG_RV64 : 0).putLong(base);
+        Mnemonic[] mnemonics = Mnemonic.values();
+        out.putInt(mnemonics.length);
+        for (Mnemonic mnemonic : mnemonics) {
+            out.put((char) mnemonic.getName().length()).put(mnemonic.getName());
+        }
+        out.putInt(symbols.size());
+        for (int i = 0; i < symbols.size(); i++) {
+            String name = symbols.getName(i);
+            out.putLong(symbols.getAddress(i)).putInt(name.length()).put(name);
+        }
+        while ((out.getBytesWritten() - start) % RECORD_SIZE != 0) {
+            out.put((char) 0);
+        }
+    }
+
+    @Override
+    public void visit(DecodedInstruction instruction) throws IOException {
+        putRecord(instruction.getAddress(), instruction.getRaw(), instruction.getImm(),
+                instruction.getMnemonic().ordinal(), instruction.getFormat(),
+                instruction.getRd() | instruction.getRs1() << 5 | instruction.getRs2() << 10);
+    }
+
+    @Override
+    public void visitData(long address, int size, long value) throws IOException {
+        putRecord(address, (int) value, 0, DATA, size, 0);
+    }
+
+    private void putRecord(long address, int raw, int imm, int mnemonic, int format, int registers)
+            throws IOException {
+        out.putInt((int) (address - base)).putInt(raw).putInt(imm);
+        out.put((char) mnemonic).put((char) format).put((char) (registers & 0xff)).put((char) (registers >>> 8));
+    }
+
+    public void finish() throws IOException {
+        out.flush();
+    }
+}
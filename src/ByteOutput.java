@@ -0,0 +1,286 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ASCII output sink. Text and little-endian binary values are written as bytes into a reusable buffer,
+ * which is flushed to a file channel, a stream or a writer when it fills up. Without a target the buffer grows and keeps everything.
+ * Strings are written one byte per char, so names decoded as ISO-8859-1 get their original bytes back.
+ */
+public class ByteOutput implements Flushable, Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+
+    private byte[] buffer;
+    private int position;
+    private long flushed;
+    private final Target target;
+
+    private interface Target extends Closeable {
+        void write(byte[] bytes, int offset, int length) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    /**
+     * Creates an in-memory output that grows as needed.
+     */
+    public ByteOutput(int capacity) {
+        this(capacity, null);
+    }
+
+    public ByteOutput(FileChannel channel) {
+        this(DEFAULT_BUFFER_SIZE, new Target() {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes, offset, length);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        });
+    }
+
+    public ByteOutput(OutputStream stream) {
+        this(DEFAULT_BUFFER_SIZE, new Target() {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                stream.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                stream.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                stream.close();
+            }
+        });
+    }
+
+    /**
+     * Adapter for callers that still pass a Writer. Bytes are widened to chars.
+     */
+    public ByteOutput(Writer writer) {
+        this(1 << 16, new Target() {
+            private final char[] chars = new char[1 << 16];
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                for (int start = 0; start < length; start += chars.length) {
+                    int count = Math.min(chars.length, length - start);
+                    for (int i = 0; i < count; i++) {
+                        chars[i] = (char) (bytes[offset + start + i] & 0xff);
+                    }
+                    writer.write(chars, 0, count);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writer.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        });
+    }
+
+    private ByteOutput(int capacity, Target target) {
+        this.buffer = new byte[capacity];
+        this.target = target;
+    }
+
+    public ByteOutput put(char c) throws IOException {
+        if (position == buffer.length) {
+            drain(1);
+        }
+        buffer[position++] = (byte) c;
+        return this;
+    }
+
+    public ByteOutput put(String s) throws IOException {
+        int length = s.length();
+        if (position + length > buffer.length) {
+            drain(length);
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) s.charAt(i);
+        }
+        return this;
+    }
+
+    public ByteOutput put(byte[] bytes) throws IOException {
+        return put(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Copies the bytes into the buffer. Writes larger than the buffer go straight to the target, if there is one.
+     */
+    public ByteOutput put(byte[] bytes, int offset, int length) throws IOException {
+        if (position + length > buffer.length) {
+            if (target != null && length > buffer.length) {
+                flushBuffer();
+                target.write(bytes, offset, length);
+                flushed += length;
+                return this;
+            }
+            drain(length);
+        }
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+        return this;
+    }
+
+    /**
+     * Appends everything written to an in-memory output.
+     */
+    public ByteOutput put(ByteOutput other) throws IOException {
+        return put(other.buffer, 0, other.position);
+    }
+
+    /**
+     * Writes the value in decimal without creating a String.
+     */
+    public ByteOutput putDecimal(long value) throws IOException {
+        if (position + 20 > buffer.length) {
+            drain(20);
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+        } else {
+            value = -value;
+        }
+        // Digits are produced from the negated value, which also covers Long.MIN_VALUE
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte swap = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = swap;
+        }
+        return this;
+    }
+
+    /**
+     * Writes the value in lowercase hex, padded with zeros to at least {@code minDigits} digits.
+     */
+    public ByteOutput putHex(long value, int minDigits) throws IOException {
+        int digits = Math.max(minDigits, (67 - Long.numberOfLeadingZeros(value)) / 4);
+        if (position + digits > buffer.length) {
+            drain(digits);
+        }
+        for (int shift = 4 * (digits - 1); shift >= 0; shift -= 4) {
+            buffer[position++] = HEX_DIGITS[(int) (value >>> shift) & 0xf];
+        }
+        return this;
+    }
+
+    /**
+     * Writes the value as 4 little-endian bytes.
+     */
+    public ByteOutput putInt(int value) throws IOException {
+        if (position + 4 > buffer.length) {
+            drain(4);
+        }
+        for (int shift = 0; shift < 32; shift += 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the value as 8 little-endian bytes.
+     */
+    public ByteOutput putLong(long value) throws IOException {
+        if (position + 8 > buffer.length) {
+            drain(8);
+        }
+        for (int shift = 0; shift < 64; shift += 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    public ByteOutput putLine() throws IOException {
+        return put(LINE_SEPARATOR);
+    }
+
+    public int size() {
+        return position;
+    }
+
+    /**
+     * Returns the number of bytes written so far, including the ones still in the buffer.
+     */
+    public long getBytesWritten() {
+        return flushed + position;
+    }
+
+    public void reset() {
+        position = 0;
+    }
+
+    /**
+     * Makes room for {@code length} more bytes: flushes to the target or grows an in-memory buffer.
+     */
+    private void drain(int length) throws IOException {
+        if (target != null) {
+            flushBuffer();
+            if (length <= buffer.length) {
+                return;
+            }
+        }
+        int capacity = Math.max(2 * buffer.length, position + length);
+        byte[] grown = new byte[capacity];
+        System.arraycopy(buffer, 0, grown, 0, position);
+        buffer = grown;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            target.write(buffer, 0, position);
+            flushed += position;
+            position = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (target != null) {
+            flushBuffer();
+            target.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (target != null) {
+            target.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, position, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Fast 128-bit non-cryptographic hash of a sequence of longs. Used to key cached listings.
+ */
+public class ContentHash {
+    private long h1 = 0x243f6a8885a308d3L;
+    private long h2 = 0x13198a2e03707344L;
+    private long count;
+
+    public ContentHash add(long value) {
+        h1 = Long.rotateLeft((h1 ^ value) * 0x9e3779b97f4a7c15L, 31);
+        h2 = Long.rotateLeft((h2 + value) * 0xc2b2ae3d27d4eb4fL, 27) ^ h1;
+        count++;
+        return this;
+    }
+
+    /**
+     * Returns the hash as 32 hex digits.
+     */
+    @Override
+    public String toString() {
+        long a = mix(h1 ^ count);
+        long b = mix(h2 + a);
+        return String.format("%016x%016x", a, b);
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
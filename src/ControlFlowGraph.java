@@ -0,0 +1,264 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Basic blocks and edges of one function in parallel primitive arrays. Blocks are sorted by address.
+ * Edges point to addresses rather than blocks, so calls and jumps may leave the function.
+ * The builder reuses one instance for every function, so only the largest function is held in memory.
+ */
+public class ControlFlowGraph {
+    public static final byte EDGE_FALLTHROUGH = 0;
+    public static final byte EDGE_BRANCH = 1;
+    public static final byte EDGE_JUMP = 2;
+    public static final byte EDGE_CALL = 3;
+
+    private long start;
+    private long end;
+    private String name;
+
+    private long[] blockStarts = new long[64];
+    private int[] blockLengths = new int[64];
+    private int[] blockInstructions = new int[64];
+    private int blockCount;
+
+    private int[] edgeSources = new int[64];
+    private long[] edgeTargets = new long[64];
+    private byte[] edgeKinds = new byte[64];
+    private int edgeCount;
+
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Address after the last instruction of the function.
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Symbol name, or an empty string for code before the first symbol.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public long getBlockStart(int block) {
+        return blockStarts[block];
+    }
+
+    /**
+     * Size of the block in bytes.
+     */
+    public int getBlockLength(int block) {
+        return blockLengths[block];
+    }
+
+    public int getBlockInstructions(int block) {
+        return blockInstructions[block];
+    }
+
+    /**
+     * Returns the block starting at the address or -1. Addresses are compared as unsigned.
+     */
+    public int findBlock(long address) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compareUnsigned(blockStarts[mid], address);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Index of the block the edge leaves.
+     */
+    public int getEdgeSource(int edge) {
+        return edgeSources[edge];
+    }
+
+    public long getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    /**
+     * One of the {@code EDGE_*} constants.
+     */
+    public byte getEdgeKind(int edge) {
+        return edgeKinds[edge];
+    }
+
+    private void reset(long start, String name) {
+        this.start = start;
+        this.end = start;
+        this.name = name;
+        blockCount = 0;
+        edgeCount = 0;
+    }
+
+    private void addBlock(long address) {
+        if (blockCount == blockStarts.length) {
+            blockStarts = Arrays.copyOf(blockStarts, 2 * blockCount);
+            blockLengths = Arrays.copyOf(blockLengths, 2 * blockCount);
+            blockInstructions = Arrays.copyOf(blockInstructions, 2 * blockCount);
+        }
+        blockStarts[blockCount] = address;
+        blockLengths[blockCount] = 0;
+        blockInstructions[blockCount] = 0;
+        blockCount++;
+    }
+
+    private void addEdge(long target, byte kind) {
+        if (edgeCount == edgeSources.length) {
+            edgeSources = Arrays.copyOf(edgeSources, 2 * edgeCount);
+            edgeTargets = Arrays.copyOf(edgeTargets, 2 * edgeCount);
+            edgeKinds = Arrays.copyOf(edgeKinds, 2 * edgeCount);
+        }
+        edgeSources[edgeCount] = blockCount - 1;
+        edgeTargets[edgeCount] = target;
+        edgeKinds[edgeCount] = kind;
+        edgeCount++;
+    }
+
+    /**
+     * Receives every function once its graph is complete. The graph is reused after the call returns.
+     */
+    public interface Writer {
+        void write(ControlFlowGraph function) throws IOException;
+
+        /**
+         * Called after the last function.
+         */
+        void finish() throws IOException;
+    }
+
+    /**
+     * Splits decoded code into functions at symbols and into basic blocks at branch targets
+     * and after terminators: jumps, calls, branches and {@code ecall}.
+     */
+    public static class Builder implements InstructionVisitor {
+        private final SymbolIndex marks;
+        private final LabelSet labels;
+        private final Writer writer;
+        private final ControlFlowGraph graph = new ControlFlowGraph();
+        private boolean inFunction;
+        private boolean blockEnded = true;
+
+        public Builder(SymbolIndex marks, LabelSet labels, Writer writer) {
+            this.marks = marks;
+            this.labels = labels;
+            this.writer = writer;
+        }
+
+        @Override
+        public void visit(DecodedInstruction instruction) throws IOException {
+            long address = instruction.getAddress();
+            if (inFunction && !blockEnded && address != graph.end) {
+                blockEnded = true; // data or a gap between sections, nothing falls through
+            }
+            int symbol = marks.indexOf(address);
+            if (symbol >= 0 || !inFunction) {
+                if (inFunction) {
+                    endFunction(address);
+                }
+                graph.reset(address, symbol >= 0 ? marks.getName(symbol) : "");
+                inFunction = true;
+                blockEnded = true;
+            }
+            if (!blockEnded && labels.contains(address)) {
+                graph.addEdge(address, EDGE_FALLTHROUGH);
+                blockEnded = true;
+            }
+            if (blockEnded) {
+                graph.addBlock(address);
+                blockEnded = false;
+            }
+            int block = graph.blockCount - 1;
+            graph.blockLengths[block] += instruction.getLength();
+            graph.blockInstructions[block]++;
+            graph.end = address + instruction.getLength();
+            addSuccessors(instruction);
+        }
+
+        private void addSuccessors(DecodedInstruction instruction) {
+            long next = instruction.getAddress() + instruction.getLength();
+            switch (instruction.getMnemonic()) {
+                case JAL:
+                    if (instruction.getRd() == 0) {
+                        graph.addEdge(instruction.getTarget(), EDGE_JUMP);
+                    } else {
+                        graph.addEdge(instruction.getTarget(), EDGE_CALL);
+                        graph.addEdge(next, EDGE_FALLTHROUGH);
+                    }
+                    break;
+                case C_J:
+                    graph.addEdge(instruction.getTarget(), EDGE_JUMP);
+                    break;
+                case C_JAL:
+                    graph.addEdge(instruction.getTarget(), EDGE_CALL);
+                    graph.addEdge(next, EDGE_FALLTHROUGH);
+                    break;
+                case JALR:
+                    if (instruction.getRd() != 0) {
+                        graph.addEdge(next, EDGE_FALLTHROUGH);
+                    }
+                    break;
+                case C_JALR:
+                case ECALL:
+                    graph.addEdge(next, EDGE_FALLTHROUGH);
+                    break;
+                case C_JR:
+                    break;
+                case BEQ:
+                case BNE:
+                case BLT:
+                case BGE:
+                case BLTU:
+                case BGEU:
+                case C_BEQZ:
+                case C_BNEZ:
+                    graph.addEdge(instruction.getTarget(), EDGE_BRANCH);
+                    graph.addEdge(next, EDGE_FALLTHROUGH);
+                    break;
+                default:
+                    return;
+            }
+            blockEnded = true;
+        }
+
+        private void endFunction(long next) throws IOException {
+            if (!blockEnded) {
+                graph.addEdge(next, EDGE_FALLTHROUGH);
+            }
+            writer.write(graph);
+        }
+
+        /**
+         * Writes the last function. Call it after all code has been decoded.
+         */
+        public void finish() throws IOException {
+            if (inFunction) {
+                writer.write(graph); // no fallthrough edge past the end of the code
+                inFunction = false;
+            }
+            writer.finish();
+        }
+    }
+}
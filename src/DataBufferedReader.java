@@ -1,10 +1,24 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Sequential reader over a file channel with its own read buffer. Multi-byte reads that fit
+ * in the buffer are single {@link ByteBuffer} accesses in the current byte order.
+ */
+public class DataBufferedReader implements DataReader {
+    private static final int BUFFER_SIZE = 1 << 16;
 
-public class DataBufferedReader implements AutoCloseable {
     private final String filename;
-    private BufferedInputStream input;
-    private int position;
-    private boolean bigEndian = true;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+    private FileChannel channel;
+    /**
+     * File offset of the first byte in the buffer.
+     */
+    private long bufferStart;
 
     public DataBufferedReader(String filename) throws IOException {
         this.filename = filename;
@@ -12,73 +26,171 @@ public class DataBufferedReader implements AutoCloseable {
     }
 
     public void reset() throws IOException {
-        if (input != null) {
-            input.close();
+        if (channel == null) {
+            try {
+                channel = FileChannel.open(Path.of(filename));
+            } catch (NoSuchFileException e) {
+                throw new FileNotFoundException(filename);
+            }
         }
-        position = 0;
-        input = new BufferedInputStream(new FileInputStream(filename));
+        channel.position(0);
+        bufferStart = 0;
+        buffer.clear().limit(0);
     }
 
-    public int getPosition() {
-        return position;
+    @Override
+    public long getPosition() {
+        return bufferStart + buffer.position();
     }
 
+    @Override
     public int read() throws IOException {
-        int nextByte = input.read();
-        if (nextByte == -1) {
+        if (!buffer.hasRemaining() && !fill()) {
             throw new EOFException("Try to read after end file");
         }
-        position++;
-        return nextByte;
+        return buffer.get() & 0xff;
     }
 
+    @Override
     public int readInt(int length) throws IOException {
         if (length > 4) {
             throw new IllegalArgumentException("Int cannot be more than 4 bytes");
         }
-        int[] bytes = new int[length];
+        return (int) readLong(length);
+    }
+
+    @Override
+    public long readLong(int length) throws IOException {
+        if (length > 8) {
+            throw new IllegalArgumentException("Long cannot be more than 8 bytes");
+        }
+        if (buffer.remaining() >= length) {
+            switch (length) {
+                case 2:
+                    return buffer.getShort() & 0xffff;
+                case 4:
+                    return Integer.toUnsignedLong(buffer.getInt());
+                case 8:
+                    return buffer.getLong();
+                default:
+            }
+        }
+        boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+        long result = 0;
         for (int i = 0; i < length; i++) {
+            long x = read();
             if (bigEndian) {
-                bytes[i] = read();
+                result = (result << 8) | x;
             } else {
-                bytes[length - i - 1] = read();
+                result |= x << (8 * i);
             }
         }
+        return result;
+    }
 
-        int result = 0;
-        for (int x : bytes) {
-            result <<= 8;
-            result |= x;
+    @Override
+    public void readFully(ByteBuffer target) throws IOException {
+        int buffered = Math.min(buffer.remaining(), target.remaining());
+        target.put(target.position(), buffer, buffer.position(), buffered);
+        target.position(target.position() + buffered);
+        buffer.position(buffer.position() + buffered);
+        // the rest bypasses the read buffer
+        while (target.hasRemaining()) {
+            bufferStart = getPosition();
+            int read = channel.read(target);
+            if (read < 0) {
+                throw new EOFException("Try to read after end file");
+            }
+            bufferStart += read;
+            buffer.clear().limit(0);
         }
-        return result;
     }
 
+    @Override
     public void skipBytes(int count) throws IOException {
-        position += count;
-        input.readNBytes(count);
+        jump(getPosition() + count);
     }
 
+    @Override
+    public boolean isRandomAccess() {
+        return false;
+    }
+
+    @Override
     public void enableBigEndian() {
-        bigEndian = true;
+        buffer.order(ByteOrder.BIG_ENDIAN);
     }
 
+    @Override
     public void enableLittleEndian() {
-        bigEndian = false;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
     }
 
+    @Override
     public boolean hasNext() throws IOException {
-        return input.available() > 0;
+        return buffer.hasRemaining() || fill();
     }
 
     @Override
     public void close() throws IOException {
-        input.close();
+        channel.close();
     }
 
-    public void jump(int index) throws IOException {
-        if (index < position) {
-            reset();
+    /**
+     * Moves the reading position. Jumps inside the buffered bytes do not read the file.
+     */
+    @Override
+    public void jump(long index) throws IOException {
+        if (index >= bufferStart && index <= bufferStart + buffer.limit()) {
+            buffer.position((int) (index - bufferStart));
+            return;
         }
-        skipBytes(index - getPosition());
+        channel.position(index);
+        bufferStart = index;
+        buffer.clear().limit(0);
+    }
+
+    /**
+     * Absolute reads are emulated by jumping there and back.
+     * Use {@link MappedDataReader} for random access.
+     */
+    @Override
+    public int getByte(long index) throws IOException {
+        return (int) getAbsolute(index, 1);
+    }
+
+    @Override
+    public int getShort(long index) throws IOException {
+        return (int) getAbsolute(index, 2);
+    }
+
+    @Override
+    public int getInt(long index) throws IOException {
+        return (int) getAbsolute(index, 4);
+    }
+
+    @Override
+    public long getLong(long index) throws IOException {
+        return getAbsolute(index, 8);
+    }
+
+    private synchronized long getAbsolute(long index, int length) throws IOException {
+        long saved = getPosition();
+        jump(index);
+        long result = readLong(length);
+        jump(saved);
+        return result;
+    }
+
+    /**
+     * Refills the buffer from the current position. Returns false at the end of the file.
+     */
+    private boolean fill() throws IOException {
+        bufferStart = getPosition();
+        channel.position(bufferStart);
+        buffer.clear();
+        int read = channel.read(buffer);
+        buffer.flip();
+        return read > 0;
     }
 }
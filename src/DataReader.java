@@ -0,0 +1,48 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public interface DataReader extends AutoCloseable {
+    long getPosition();
+
+    int read() throws IOException;
+
+    int readInt(int length) throws IOException;
+
+    long readLong(int length) throws IOException;
+
+    /**
+     * Reads the remaining bytes of the buffer from the reading position and advances both.
+     * Words are then taken from the buffer in its own byte order. If the input ends first,
+     * the bytes up to its end are copied and {@link java.io.EOFException} is thrown.
+     */
+    void readFully(ByteBuffer target) throws IOException;
+
+    void skipBytes(int count) throws IOException;
+
+    void jump(long index) throws IOException;
+
+    /**
+     * Absolute reads. They use the current byte order and do not depend on the reading position.
+     */
+    int getByte(long index) throws IOException;
+
+    int getShort(long index) throws IOException;
+
+    int getInt(long index) throws IOException;
+
+    long getLong(long index) throws IOException;
+
+    /**
+     * Returns true if absolute reads are cheap and may be called from several threads.
+     */
+    boolean isRandomAccess();
+
+    void enableBigEndian();
+
+    void enableLittleEndian();
+
+    boolean hasNext() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,43 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event with the totals of {@link DisassemblyStats} for one listing.
+ * While it is enabled in a recording, the decode loops count even without {@code --stats}.
+ */
+@Name("riscv.DecodeCounters")
+@Label("Decode Counters")
+@Category("RISC-V Disassembler")
+@Description("Decoded instructions, unknown encodings, symbol lookups and bytes of one listing")
+@StackTrace(false)
+public class DecodeCountersEvent extends jdk.jfr.Event {
+    @Label("Instructions")
+    public long instructions;
+
+    @Label("Unknown Encodings")
+    public long unknown;
+
+    @Label("Data Items")
+    public long data;
+
+    @Label("Symbol Lookups")
+    public long symbolLookups;
+
+    @Label("Symbol Hits")
+    public long symbolHits;
+
+    @Label("Label Hits")
+    public long labelHits;
+
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytesRead;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+}
@@ -0,0 +1,105 @@
+/**
+ * Mutable holder for a decoded instruction. Decoders fill the same instance for every instruction,
+ * so consumers must copy the values they want to keep.
+ */
+public class DecodedInstruction {
+    private long address;
+    private int raw;
+    private int length;
+    private Mnemonic mnemonic = Mnemonic.UNKNOWN;
+    private int format;
+    private int rd;
+    private int rs1;
+    private int rs2;
+    private int imm;
+    private long target;
+
+    void set(long address, int raw, int length, Mnemonic mnemonic, int format, int rd, int rs1, int rs2, int imm) {
+        this.address = address;
+        this.raw = raw;
+        this.length = length;
+        this.mnemonic = mnemonic;
+        this.format = format;
+        this.rd = rd;
+        this.rs1 = rs1;
+        this.rs2 = rs2;
+        this.imm = imm;
+        this.target = 0;
+    }
+
+    void setTarget(long target) {
+        this.target = target;
+    }
+
+    public long getAddress() {
+        return address;
+    }
+
+    public int getRaw() {
+        return raw;
+    }
+
+    /**
+     * Instruction size in bytes: 2 for compressed instructions, 4 otherwise.
+     * The raw value of a compressed instruction holds its 16-bit parcel.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public Mnemonic getMnemonic() {
+        return mnemonic;
+    }
+
+    /**
+     * One of the {@code RiscVDisassembler.FORMAT_*} constants. It defines which operands are meaningful.
+     */
+    public int getFormat() {
+        return format;
+    }
+
+    public int getRd() {
+        return rd;
+    }
+
+    public int getRs1() {
+        return rs1;
+    }
+
+    public int getRs2() {
+        return rs2;
+    }
+
+    /**
+     * Immediate as it is printed: I-type immediates and offsets of loads and stores are sign-extended,
+     * U-type immediates are already shifted, fence stores {@code pred << 4 | succ}.
+     * Offsets of branches and jumps are sign-extended and relative to the instruction.
+     * CSR instructions store the CSR number, atomics {@code aq << 1 | rl}, floating-point instructions
+     * the rounding mode, and fused multiply-adds {@code rs3 << 3 | rm}.
+     */
+    public int getImm() {
+        return imm;
+    }
+
+    /**
+     * Whether the instruction is a branch or a direct jump with a known target.
+     */
+    public boolean hasTarget() {
+        switch (format) {
+            case RiscVDisassembler.FORMAT_B:
+            case RiscVDisassembler.FORMAT_J:
+            case RiscVDisassembler.FORMAT_CB:
+            case RiscVDisassembler.FORMAT_CJ:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Absolute target of a branch or jump, wrapped to the address width. Meaningful only if {@link #hasTarget()}.
+     */
+    public long getTarget() {
+        return target;
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * On-disk cache of listings keyed by {@link ElfReader#getContentKey()}.
+ * Entries are published with an atomic rename, so readers never see a partial listing and need no lock.
+ * Eviction deletes the least recently used entries once the cache exceeds its size and runs
+ * under an exclusive lock on the {@code lock} file, so several processes can share one directory.
+ */
+public class DisassemblyCache {
+    private static final String ENTRY_EXTENSION = ".asm";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final long STALE_TEMP_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final Path dir;
+    private final long maxBytes;
+
+    public DisassemblyCache(Path dir, long maxBytes) throws IOException {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative");
+        }
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Writes the listing of the file to {@code target}, from the cache if possible.
+     * On a miss the listing is rendered once into a new entry and then copied.
+     */
+    public void disassemble(ElfReader reader, WritableByteChannel target) throws IOException {
+        String key = reader.getContentKey();
+        if (copyTo(key, target)) {
+            return;
+        }
+        Path temp = Files.createTempFile(dir, key, TEMP_EXTENSION);
+        try {
+            try (ByteOutput out = new ByteOutput(FileChannel.open(temp, WRITE))) {
+                reader.disassemble(out);
+            }
+            transfer(temp, target);
+            Files.move(temp, entry(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evict();
+    }
+
+    /**
+     * Copies the cached listing to {@code target} and marks it as recently used.
+     * Returns false if there is no entry for the key.
+     */
+    public boolean copyTo(String key, WritableByteChannel target) throws IOException {
+        Path entry = entry(key);
+        try {
+            transfer(entry, target);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // evicted by another process after the copy
+        }
+        return true;
+    }
+
+    private static void transfer(Path source, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; ) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
+
+    private Path entry(String key) {
+        return dir.resolve(key + ENTRY_EXTENSION);
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits in its size.
+     * Also removes temporary files left by processes that died while writing.
+     */
+    public synchronized void evict() throws IOException {
+        try (FileChannel lockChannel = FileChannel.open(dir.resolve("lock"), CREATE, WRITE)) {
+            lockChannel.lock(); // released when the channel is closed
+            List<Path> entries = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(ENTRY_EXTENSION)) {
+                        entries.add(file);
+                    } else if (name.endsWith(TEMP_EXTENSION)) {
+                        try {
+                            if (now - lastModified(file) > STALE_TEMP_MILLIS) {
+                                Files.deleteIfExists(file);
+                            }
+                        } catch (NoSuchFileException e) {
+                            // published or removed meanwhile
+                        }
+                    }
+                }
+            }
+
+            long[] sizes = new long[entries.size()];
+            long[] times = new long[entries.size()];
+            long total = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                try {
+                    sizes[i] = Files.size(entries.get(i));
+                    times[i] = lastModified(entries.get(i));
+                } catch (NoSuchFileException e) {
+                    // removed by another process
+                }
+                total += sizes[i];
+            }
+            if (total <= maxBytes) {
+                return;
+            }
+
+            Integer[] order = new Integer[entries.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> times[i]));
+            for (int i = 0; i < order.length && total > maxBytes; i++) {
+                Files.deleteIfExists(entries.get(order[i]));
+                total -= sizes[order[i]];
+            }
+        }
+    }
+
+    private static long lastModified(Path file) throws IOException {
+        return Files.getLastModifiedTime(file).toMillis();
+    }
+}
@@ -0,0 +1,255 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resident disassembler listening on a localhost TCP port or a Unix domain socket.
+ * <p>
+ * A request is one line: a file path, optionally followed by a tab, the first address, a tab and the end
+ * address in hex. The response is {@code OK}, the listing lines of that range and an empty line, or a single
+ * {@code ERROR <message>} line. A client may send several requests without waiting, they are answered in order.
+ * <p>
+ * Parsed files with their symbols and labels are kept in an LRU cache and reloaded when the modification
+ * time or size of the file changes. Every connection is served by its own thread. Readers are reference
+ * counted, so one that is evicted or replaced while a request still streams from it is closed after that request.
+ */
+public class DisassemblyServer {
+    public static final int DEFAULT_CACHE_ENTRIES = 64;
+    private static final int WARM_UP_ROUNDS = 20;
+
+    private final Map<Path, Entry> cache;
+    private final PrintStream log;
+
+    public DisassemblyServer(int cacheEntries, PrintStream log) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+                if (size() <= cacheEntries) {
+                    return false;
+                }
+                release(eldest.getValue());
+                return true;
+            }
+        };
+        this.log = log;
+    }
+
+    /**
+     * Opens a socket for the address: a port number for localhost TCP, otherwise the path of a Unix domain socket.
+     * The socket file must not exist yet and is deleted when the JVM exits.
+     */
+    public static ServerSocketChannel open(String address) throws IOException {
+        if (address.chars().allMatch(Character::isDigit)) {
+            int port;
+            try {
+                port = Integer.parseInt(address);
+            } catch (NumberFormatException e) {
+                port = -1;
+            }
+            if (port < 0 || port > 0xffff) {
+                throw new IOException("Invalid port " + address);
+            }
+            return ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+        Path path = Path.of(address);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                .bind(UnixDomainSocketAddress.of(path));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // nothing left to report to
+            }
+        }));
+        return server;
+    }
+
+    /**
+     * Accepts connections until the socket is closed.
+     */
+    public void serve(ServerSocketChannel server) throws IOException {
+        warmUp();
+        log.println("Listening on " + server.getLocalAddress());
+        ExecutorService pool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "disassembly-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (true) {
+                SocketChannel client = server.accept();
+                pool.execute(() -> handle(client));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client),
+                     StandardCharsets.UTF_8));
+             ByteOutput out = new ByteOutput(Channels.newOutputStream(client))) {
+            for (String request; (request = in.readLine()) != null; ) {
+                respond(request, out);
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // the client went away, nothing to answer
+        }
+    }
+
+    private void respond(String request, ByteOutput out) throws IOException {
+        String[] parts = request.split("\t", -1);
+        long from = 0;
+        long to = -1;
+        try {
+            if (parts.length == 3) {
+                from = Long.parseUnsignedLong(parts[1], 16);
+                to = Long.parseUnsignedLong(parts[2], 16);
+            } else if (parts.length != 1 || parts[0].isEmpty()) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException e) {
+            out.put("ERROR Expected a path or a path, a start and an end address in hex").putLine();
+            return;
+        }
+
+        Entry entry;
+        try {
+            entry = acquire(Path.of(parts[0]));
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            out.put("ERROR Input file not found").putLine();
+            return;
+        } catch (IOException | RuntimeException e) {
+            out.put("ERROR ").put(String.valueOf(e.getMessage()).replace('\n', ' ')).putLine();
+            return;
+        }
+        try {
+            out.put("OK").putLine();
+            // The headers are already read, so a failure here is an I/O error and the connection is dropped.
+            entry.reader.disassemble(out, from, to);
+            out.putLine();
+        } finally {
+            release(entry);
+        }
+    }
+
+    /**
+     * Returns the cached entry of a file, or opens it if it is not cached or has changed since.
+     * The caller holds a reference to the entry and must {@link #release} it.
+     */
+    private Entry acquire(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        synchronized (cache) {
+            Entry entry = cache.get(key);
+            if (entry != null && entry.matches(modified, attributes.size())) {
+                entry.references++;
+                return entry;
+            }
+        }
+        // Opened outside the lock, so a large file does not stall other clients.
+        ElfReader reader = new ElfReader(key.toString());
+        try {
+            reader.prepare();
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        Entry opened = new Entry(reader, modified, attributes.size());
+        Entry result;
+        synchronized (cache) {
+            Entry current = cache.get(key);
+            if (current != null && current.matches(modified, attributes.size())) {
+                // another client opened the same file meanwhile
+                result = current;
+            } else {
+                result = opened;
+                Entry replaced = cache.put(key, opened);
+                if (replaced != null) {
+                    release(replaced);
+                }
+            }
+            result.references++;
+        }
+        if (result != opened) {
+            reader.close();
+        }
+        return result;
+    }
+
+    /**
+     * Drops a reference to the entry and closes its reader when it was the last one.
+     */
+    private void release(Entry entry) {
+        synchronized (cache) {
+            if (--entry.references > 0) {
+                return;
+            }
+        }
+        try {
+            entry.reader.close();
+        } catch (IOException e) {
+            log.println("Cannot close a cached file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes and renders every 16-bit parcel and as many 32-bit words, so that the first request runs compiled code.
+     */
+    private static void warmUp() throws IOException {
+        DecodedInstruction instruction = new DecodedInstruction();
+        ByteOutput out = new ByteOutput(1 << 16);
+        for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+            RiscVDisassembler decoder = (round & 1) == 0 ? RiscVDisassembler.RV32 : RiscVDisassembler.RV64;
+            for (int parcel = 0; parcel < 1 << 16; parcel++) {
+                if ((parcel & 0b11) == 0b11) {
+                    decoder.decode(4L * parcel, parcel | parcel * 0x9e37 << 16, instruction);
+                } else {
+                    decoder.decodeCompressed(4L * parcel, parcel, instruction);
+                }
+                TextRenderer.appendLine(out, instruction, SymbolIndex.EMPTY, LabelSet.EMPTY);
+                out.reset();
+            }
+        }
+    }
+
+    private static final class Entry {
+        final ElfReader reader;
+        final long modified;
+        final long size;
+        /**
+         * The reference of the cache while the entry is in it, and one per request in progress.
+         * Guarded by the cache lock.
+         */
+        int references = 1;
+
+        Entry(ElfReader reader, long modified, long size) {
+            this.reader = reader;
+            this.modified = modified;
+            this.size = size;
+        }
+
+        boolean matches(long modified, long size) {
+            return this.modified == modified && this.size == size;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decode counters and phase times. A reader counts into its own instance without synchronization and
+ * merges it into the shared one with {@link #add} when it is done, so one instance can collect a whole batch.
+ * Counting is off unless {@code --stats} is given or {@link DecodeCountersEvent} is enabled in a recording,
+ * and then the decode loops only test a null local.
+ */
+public class DisassemblyStats {
+    private static final Mnemonic[] MNEMONICS = Mnemonic.values();
+
+    private final long[] mnemonics = new long[MNEMONICS.length];
+    private long data;
+    private long symbolLookups;
+    private long symbolHits;
+    private long labelHits;
+    private long bytesRead;
+    private long bytesWritten;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    /**
+     * Counts a decoded instruction and repeats the symbol and label lookups the renderer makes for it.
+     */
+    void countInstruction(DecodedInstruction instruction, SymbolIndex marks, LabelSet labels) {
+        mnemonics[instruction.getMnemonic().ordinal()]++;
+        bytesRead += instruction.getLength();
+        symbolLookups++;
+        if (marks.indexOf(instruction.getAddress()) >= 0) {
+            symbolHits++;
+        }
+        if (instruction.hasTarget()) {
+            symbolLookups++;
+            if (marks.indexOf(instruction.getTarget()) >= 0) {
+                symbolHits++;
+            } else if (labels.contains(instruction.getTarget())) {
+                labelHits++;
+            }
+        }
+    }
+
+    void countData(int size) {
+        data++;
+        bytesRead += size;
+    }
+
+    void addBytesWritten(long bytes) {
+        bytesWritten += bytes;
+    }
+
+    public synchronized void addPhase(String phase, long nanos) {
+        phases.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * Adds the counters and phase times of another instance that is no longer updated.
+     */
+    public synchronized void add(DisassemblyStats other) {
+        for (int i = 0; i < mnemonics.length; i++) {
+            mnemonics[i] += other.mnemonics[i];
+        }
+        data += other.data;
+        symbolLookups += other.symbolLookups;
+        symbolHits += other.symbolHits;
+        labelHits += other.labelHits;
+        bytesRead += other.bytesRead;
+        bytesWritten += other.bytesWritten;
+        other.phases.forEach(this::addPhase);
+    }
+
+    public synchronized long getInstructions() {
+        return Arrays.stream(mnemonics).sum();
+    }
+
+    public synchronized long getUnknown() {
+        return mnemonics[Mnemonic.UNKNOWN.ordinal()];
+    }
+
+    /**
+     * Commits the counters as JFR events. Does nothing when they are not enabled in a recording.
+     */
+    public synchronized void commitEvents() {
+        DecodeCountersEvent counters = new DecodeCountersEvent();
+        if (counters.isEnabled()) {
+            counters.instructions = getInstructions();
+            counters.unknown = getUnknown();
+            counters.data = data;
+            counters.symbolLookups = symbolLookups;
+            counters.symbolHits = symbolHits;
+            counters.labelHits = labelHits;
+            counters.bytesRead = bytesRead;
+            counters.bytesWritten = bytesWritten;
+            counters.commit();
+        }
+        for (int i = 0; i < mnemonics.length; i++) {
+            if (mnemonics[i] == 0) {
+                continue;
+            }
+            InstructionCountEvent event = new InstructionCountEvent();
+            if (!event.isEnabled()) {
+                break;
+            }
+            event.mnemonic = MNEMONICS[i].getName();
+            event.count = mnemonics[i];
+            event.commit();
+        }
+    }
+
+    public synchronized void print(PrintStream out) {
+        out.println("Phases:");
+        phases.forEach((phase, nanos) -> out.printf("  %-20s %12.3f ms%n", phase, nanos / 1e6));
+        out.println("Instructions: " + getInstructions() + ", unknown encodings: " + getUnknown()
+                + ", data items: " + data);
+        out.println("Symbol lookups: " + symbolLookups + ", symbol hits: " + symbolHits + ", label hits: " + labelHits);
+        out.println("Bytes read: " + bytesRead + ", bytes written: " + bytesWritten);
+        out.println("Instructions by mnemonic:");
+        Integer[] order = new Integer[mnemonics.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> mnemonics[i]).reversed());
+        for (int i : order) {
+            if (mnemonics[i] > 0) {
+                out.printf("  %-10s %12d%n", MNEMONICS[i].getName(), mnemonics[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.IOException;
+
+/**
+ * Writes control-flow graphs in Graphviz DOT format, one cluster per function. Nodes are named by
+ * block address, so edges to other functions and to code outside executable sections need no lookup.
+ */
+public class DotCfgWriter implements ControlFlowGraph.Writer {
+    private final ByteOutput out;
+    private boolean started;
+
+    public DotCfgWriter(ByteOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(ControlFlowGraph function) throws IOException {
+        start();
+        out.put("  subgraph \"cluster_").putHex(function.getStart(), 8).put("\" {").putLine();
+        out.put("    label=\"");
+        putEscaped(function.getName().isEmpty() ? "<unnamed>" : function.getName());
+        out.put('"').put(';').putLine();
+        for (int block = 0; block < function.getBlockCount(); block++) {
+            long address = function.getBlockStart(block);
+            out.put("    ").put('"').putHex(address, 8).put("\" [label=\"").putHex(address, 8);
+            if (block == 0 && !function.getName().isEmpty()) {
+                out.put(" <");
+                putEscaped(function.getName());
+                out.put('>');
+            }
+            out.put("\\n").putDecimal(function.getBlockInstructions(block)).put(" instructions\"];").putLine();
+        }
+        // Edges to blocks of this function stay in the cluster, the rest go to the top level
+        // so that Graphviz does not pull the target nodes into this cluster.
+        putEdges(function, true);
+        out.put("  }").putLine();
+        putEdges(function, false);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        start();
+        out.put('}').putLine();
+        out.flush();
+    }
+
+    private void start() throws IOException {
+        if (!started) {
+            out.put("digraph cfg {").putLine();
+            out.put("  node [shape=box, fontname=\"monospace\"];").putLine();
+            started = true;
+        }
+    }
+
+    private void putEdges(ControlFlowGraph function, boolean internal) throws IOException {
+        for (int edge = 0; edge < function.getEdgeCount(); edge++) {
+            long target = function.getEdgeTarget(edge);
+            if ((function.findBlock(target) >= 0) != internal) {
+                continue;
+            }
+            out.put(internal ? "    " : "  ").put('"').putHex(function.getBlockStart(function.getEdgeSource(edge)), 8)
+                    .put("\" -> \"").putHex(target, 8).put('"');
+            switch (function.getEdgeKind(edge)) {
+                case ControlFlowGraph.EDGE_BRANCH:
+                    out.put(" [color=darkgreen]");
+                    break;
+                case ControlFlowGraph.EDGE_JUMP:
+                    out.put(" [color=blue]");
+                    break;
+                case ControlFlowGraph.EDGE_CALL:
+                    out.put(" [style=dashed]");
+                    break;
+                default:
+                    break;
+            }
+            out.put(';').putLine();
+        }
+    }
+
+    private void putEscaped(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.put('\\');
+            }
+            out.put(c);
+        }
+    }
+}
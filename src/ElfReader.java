@@ -1,38 +1,360 @@
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.Writer;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class ElfReader implements AutoCloseable {
-    private final DataBufferedReader reader;
+    private final DataReader reader;
     private final static byte[] MAGIC_NUMBERS = new byte[]{0x7f, 0x45, 0x4c, 0x46};
-    private int eShoff, eShNum, eShStrndx;
-    private int symtableOffset = -1;
-    private int symtableSize = -1;
-    private int strtableOffset = -1;
+    private final static int CHUNK_COMMANDS = 1 << 14;
+    private final static int SEEK_COMMANDS = 1 << 12;
+    /**
+     * Size of the address windows of the low-memory mode. It is the reach of {@code jal},
+     * the longest direct jump, so targets of a window lie in it or its neighbours.
+     */
+    private final static int WINDOW_BITS = 20;
+    /**
+     * Size of a raw image read to the end of the input, the most a {@link LabelSet} covers.
+     */
+    private final static long MAX_RAW_SIZE = 1L << 32;
+    private final static int ET_REL = 1;
+    private final static int SHT_NOBITS = 8;
+    private final static int SHF_EXECINSTR = 4;
+    private final static int STT_OBJECT = 1;
+    private final static int STT_FUNC = 2;
+    /**
+     * Version of the listing format. Bump it whenever the output for the same file changes.
+     */
+    private final static int OUTPUT_VERSION = 5;
+    /**
+     * Returned by {@link #findSymbol} when there is no such symbol. Code symbols are halfword aligned,
+     * so it is never the address of one.
+     */
+    public final static long NO_SYMBOL = -1;
+    private boolean headersRead;
+    private long eShoff;
+    private int eType, eShNum, eShStrndx;
+    private boolean elf64;
+    private RiscVDisassembler decoder = RiscVDisassembler.RV32;
+    private long symtableOffset = -1;
+    private long symtableSize = -1;
+    private long strtableOffset = -1;
     private int strtableSize = -1;
-    private int textOffset = -1;
-    private int textSize = -1;
-    private int textAddr = -1;
-    private char[] stringTable;
-    private Map<Integer, String> marks;
+    /**
+     * Address of every executable section by section header index, -1 for other sections.
+     */
+    private long[] sectionAddresses;
+    private SectionLayout layout = SectionLayout.EMPTY;
+    /**
+     * End of the last executable section placed so far in a relocatable file.
+     */
+    private long relocatableEnd;
+    private StringTable stringTable;
+    /**
+     * Symbols of a raw image, null for ELF files.
+     */
+    private SymbolMap rawSymbols;
+    private SymbolIndex marks = SymbolIndex.EMPTY;
+    private LabelSet labels;
+    private SeekIndex seekIndex = SeekIndex.EMPTY;
+    private int threads = 1;
+    private OperandTable operands = OperandTable.ABI;
+    private boolean lowMemory;
+    /**
+     * True for a raw image of unknown size: pieces end where the input does.
+     */
+    private boolean toEndOfInput;
+    private DisassemblyStats stats;
+    /**
+     * Counters of the listing being written, null while counting is off.
+     */
+    private DisassemblyStats counters;
 
-    public ElfReader(DataBufferedReader reader) {
+    public ElfReader(DataReader reader) {
         this.reader = reader;
         reader.enableLittleEndian();
     }
 
     public ElfReader(String filename) throws IOException {
-        this(new DataBufferedReader(filename));
+        this(new MappedDataReader(filename));
+    }
+
+    /**
+     * Sets the number of threads used to decode executable sections. The output does not depend on it.
+     * Readers without random access always decode sequentially.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Prints registers as {@code x0..x31} instead of ABI names.
+     */
+    public void setNumericRegisters(boolean numeric) {
+        this.operands = OperandTable.of(numeric);
+    }
+
+    /**
+     * Keeps the memory of {@link #disassemble(ByteOutput)} independent of the size of the code: labels are
+     * collected per 1 MB window by a sweep that runs one window ahead of rendering, instead of for the whole
+     * file up front. The output is the same. Code is decoded sequentially then, whatever the number of threads.
+     */
+    public void setLowMemory(boolean lowMemory) {
+        this.lowMemory = lowMemory;
+    }
+
+    /**
+     * Sets the statistics that receive phase times and decode counters, or null to count nothing.
+     * Phases are also recorded as {@link PhaseEvent JFR events} either way.
+     */
+    public void setStats(DisassemblyStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Reads the input as a raw image instead of an ELF file: {@code length} bytes from {@code offset} are code
+     * loaded at {@code address}. A length of -1 reads to the end of the input, which suits streams whose size
+     * is not known; listings of such an image always use the low-memory mode, and address ranges and control
+     * flow need a length. Code symbols of the map become marks. Data symbols with a size inside the image become
+     * marks too and their bytes are printed as data, like ELF objects.
+     */
+    public void setRawImage(boolean rv64, long address, long offset, long length, SymbolMap map) {
+        elf64 = rv64;
+        decoder = rv64 ? RiscVDisassembler.RV64 : RiscVDisassembler.RV32;
+        toEndOfInput = length < 0;
+        if (toEndOfInput) {
+            long addressSpace = (rv64 ? 0 : 1L << 32) - address;
+            length = addressSpace != 0 && before(addressSpace, MAX_RAW_SIZE) ? addressSpace : MAX_RAW_SIZE;
+        }
+        SectionLayout.Builder sections = new SectionLayout.Builder().addSection(address, offset, length);
+        SymbolIndex.Builder builder = new SymbolIndex.Builder();
+        for (int i = 0; i < map.size(); i++) {
+            long symbolAddress = map.getAddress(i);
+            if (map.isCode(i)) {
+                builder.add(symbolAddress, i);
+            } else if (Long.compareUnsigned(symbolAddress - address, length) < 0) {
+                builder.add(symbolAddress, i);
+                sections.addObject(symbolAddress, map.getSize(i));
+            }
+        }
+        layout = sections.build();
+        marks = builder.build(map::getName);
+        rawSymbols = map;
+        headersRead = true;
     }
 
     public void disassemble(Writer writer) throws IOException {
-        readFileHeader();
-        readStringTableHeader();
-        readStringTable();
-        readSectionsHeaders();
-        readSymTable();
-        disassembleText(writer);
+        disassemble(new ByteOutput(writer));
+    }
+
+    /**
+     * Writes the listing to {@code out} and flushes it. The output is not closed.
+     */
+    public void disassemble(ByteOutput out) throws IOException {
+        readHeaders();
+        long written = out.getBytesWritten();
+        startCounters();
+        phase("disassembleText", () -> {
+            if (lowMemory || toEndOfInput) {
+                decodeText(new WindowedRenderer(out), null);
+            } else if (threads > 1 && reader.isRandomAccess()) {
+                disassembleTextParallel(out);
+            } else {
+                readLabels();
+                decodeText(new TextRenderer(out, marks, labels, operands));
+            }
+            out.flush();
+        });
+        finishCounters(out.getBytesWritten() - written);
+    }
+
+    /**
+     * Writes the lines of instructions and data that start in {@code [from, to)} without flushing the output.
+     * They are the same as the matching lines of the full listing. Addresses are compared as unsigned,
+     * so {@code [0, -1)} is the whole listing. Needs a random access reader. After {@link #prepare()}
+     * several threads may call it at once.
+     */
+    public void disassemble(ByteOutput out, long from, long to) throws IOException {
+        if (!reader.isRandomAccess()) {
+            throw new IOException("Address ranges need a random access reader");
+        }
+        prepare();
+        renderText(seek(from), to, out, null, labels);
+    }
+
+    /**
+     * Reads the headers, symbols and labels, so that later range listings only decode.
+     */
+    public synchronized void prepare() throws IOException {
+        readHeaders();
+        checkKnownSize();
+        readLabels();
+    }
+
+    /**
+     * Returns the first point at or after the address where the sequential sweep passes. Data items are words
+     * from the start of their piece and code is scanned from the nearest seek point, so only a few kilobytes
+     * are read.
+     */
+    private long seek(long address) throws IOException {
+        int piece = layout.floorIndex(address);
+        if (piece < 0 || !before(address, layout.getEnd(piece))) {
+            return address;
+        }
+        long start = layout.getAddress(piece);
+        if (layout.isData(piece)) {
+            start += (address - start) & ~3L;
+        } else {
+            start = seekIndex.floor(start, address);
+        }
+        return skipText(start, address);
+    }
+
+    /**
+     * Decodes all executable sections and passes every instruction and data item to the visitor
+     * without rendering text.
+     */
+    public void decode(InstructionVisitor visitor) throws IOException {
+        readHeaders();
+        decodeText(visitor);
+    }
+
+    /**
+     * Splits the code into functions and basic blocks and passes every function graph to the writer.
+     * Functions are written as soon as they end, so memory does not grow with the size of the code.
+     */
+    public void buildControlFlow(ControlFlowGraph.Writer writer) throws IOException {
+        readHeaders();
+        checkKnownSize();
+        startCounters();
+        phase("buildControlFlow", () -> {
+            readLabels();
+            ControlFlowGraph.Builder builder = new ControlFlowGraph.Builder(marks, labels, writer);
+            decodeText(builder);
+            builder.finish();
+        });
+        finishCounters(0);
+    }
+
+    /**
+     * Writes the instructions and data as a {@link BinaryListingWriter binary listing} and flushes it.
+     */
+    public void disassembleBinary(ByteOutput out) throws IOException {
+        readHeaders();
+        long written = out.getBytesWritten();
+        startCounters();
+        phase("disassembleBinary", () -> {
+            BinaryListingWriter writer = new BinaryListingWriter(out, elf64, layout.getStart(), layout.getEnd(), marks);
+            decodeText(writer);
+            writer.finish();
+        });
+        finishCounters(out.getBytesWritten() - written);
+    }
+
+    private void checkKnownSize() throws IOException {
+        if (toEndOfInput) {
+            throw new IOException("Raw image needs a length");
+        }
+    }
+
+    private interface Phase {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs a step as a {@link PhaseEvent} and adds its time to the statistics.
+     */
+    private void phase(String name, Phase step) throws IOException {
+        PhaseEvent event = new PhaseEvent();
+        long start = System.nanoTime();
+        event.begin();
+        step.run();
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = name;
+            event.commit();
+        }
+        if (stats != null) {
+            stats.addPhase(name, System.nanoTime() - start);
+        }
+    }
+
+    private void startCounters() {
+        counters = stats != null || new DecodeCountersEvent().isEnabled() || new InstructionCountEvent().isEnabled()
+                ? new DisassemblyStats() : null;
+    }
+
+    private void finishCounters(long bytesWritten) {
+        if (counters == null) {
+            return;
+        }
+        counters.addBytesWritten(bytesWritten);
+        counters.commitEvents();
+        if (stats != null) {
+            stats.add(counters);
+        }
+        counters = null;
+    }
+
+    /**
+     * Returns a key that identifies the listing of this file: a hash of the executable sections with their
+     * addresses, the symbol and string tables, the listing format version and the line separator.
+     */
+    public String getContentKey() throws IOException {
+        readHeaders();
+        ContentHash hash = new ContentHash();
+        hash.add(OUTPUT_VERSION).add(operands == OperandTable.NUMERIC ? 1 : 0).add(elf64 ? 64 : 32).add(eType).add(layout.getSectionCount());
+        // cached listings are reused verbatim, so they must end lines the same way
+        hash.add(System.lineSeparator().hashCode());
+        for (int section = 0; section < layout.getSectionCount(); section++) {
+            long address = layout.getSectionAddress(section);
+            hash.add(address);
+            hashRange(hash, layout.getFileOffset(section, address), layout.getSectionEnd(section) - address);
+        }
+        hashRange(hash, symtableOffset, symtableSize);
+        hashRange(hash, strtableOffset, strtableSize);
+        return hash.toString();
+    }
+
+    private void hashRange(ContentHash hash, long offset, long size) throws IOException {
+        hash.add(size);
+        reader.jump(offset);
+        long i = 0;
+        for (; i + 8 <= size; i += 8) {
+            hash.add(reader.readLong(8));
+        }
+        for (; i < size; i++) {
+            hash.add(reader.read());
+        }
+    }
+
+    void readHeaders() throws IOException {
+        if (headersRead) {
+            return;
+        }
+        phase("readFileHeader", this::readFileHeader);
+        phase("readStringTable", () -> {
+            readStringTableHeader();
+            readStringTable();
+        });
+        SectionLayout.Builder sections = new SectionLayout.Builder();
+        phase("readSectionsHeaders", () -> readSectionsHeaders(sections));
+        phase("readSymTable", () -> {
+            readSymTable(sections);
+            layout = sections.build();
+        });
+        headersRead = true;
     }
 
     private void readFileHeader() throws IOException {
@@ -42,16 +364,20 @@ public class ElfReader implements AutoCloseable {
             }
         }
 
-        if (reader.read() != 1) { // EI_CLASS
-            throw new IOException("Invalid format: disassembler supports only 32-bit files");
+        int eiClass = reader.read();
+        if (eiClass != 1 && eiClass != 2) { // EI_CLASS
+            throw new IOException("Invalid format: disassembler supports only 32-bit and 64-bit files");
         }
+        elf64 = eiClass == 2;
+        decoder = elf64 ? RiscVDisassembler.RV64 : RiscVDisassembler.RV32;
         if (reader.read() != 1) { // EI_DATA
             throw new IOException("Invalid format: RISC-V supports only little endian");
         }
         if (reader.read() != 1) { // EI_VERSION
             throw new IOException("Invalid elf version");
         }
-        reader.skipBytes(11);
+        reader.skipBytes(9);
+        eType = reader.readInt(2);
 
         if (reader.readInt(2) != 0xf3) { // e_machine
             throw new IOException("Invalid format: disassembler supports only RISC-V files");
@@ -60,125 +386,948 @@ public class ElfReader implements AutoCloseable {
         if (reader.readInt(4) != 1) { // e_version
             throw new IOException("Invalid version");
         }
-        reader.skipBytes(8);
-        eShoff = reader.readInt(4);
+        if (elf64) {
+            reader.skipBytes(16);
+            eShoff = reader.readLong(8);
+        } else {
+            reader.skipBytes(8);
+            eShoff = reader.readLong(4);
+        }
         reader.skipBytes(12);
         eShNum = reader.readInt(2);
         eShStrndx = reader.readInt(2);
     }
 
     private void readStringTableHeader() throws IOException {
-        reader.jump(eShoff + 40 * eShStrndx);
+        reader.jump(eShoff + (elf64 ? 64 : 40) * eShStrndx);
         int shType;
         reader.skipBytes(4);
         shType = reader.readInt(4);
         if (shType != 3) {
             throw new IOException("Invalid e_shndx in file header");
         }
-        reader.skipBytes(8);
-        strtableOffset = reader.readInt(4);
-        strtableSize = reader.readInt(4);
-        reader.skipBytes(16);
+        long size;
+        if (elf64) {
+            reader.skipBytes(16);
+            strtableOffset = reader.readLong(8);
+            size = reader.readLong(8);
+        } else {
+            reader.skipBytes(8);
+            strtableOffset = reader.readLong(4);
+            size = reader.readLong(4);
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("String table is too large");
+        }
+        strtableSize = (int) size;
     }
 
     private void readStringTable() throws IOException {
-        if (strtableOffset < -1) {
+        if (strtableOffset == -1) {
             throw new IOException("String table not found");
         }
-        reader.jump(strtableOffset);
+        stringTable = new StringTable(reader, strtableOffset, strtableSize);
+    }
 
-        stringTable = new char[strtableSize];
-        for (int i = 0; i < strtableSize; i++) {
-            stringTable[i] = (char) reader.read();
+    private void readSectionsHeaders(SectionLayout.Builder sections) throws IOException {
+        reader.jump(eShoff);
+        sectionAddresses = new long[eShNum];
+        if (elf64) {
+            readSectionsHeaders64(sections);
+        } else {
+            readSectionsHeaders32(sections);
         }
-        if (stringTable[strtableSize - 1] != 0) {
-            throw new IOException("Incorrect string table format");
+        if (Arrays.stream(sectionAddresses).allMatch(address -> address == -1)) {
+            throw new IOException("No executable sections in the file");
+        }
+        if (symtableOffset == -1) {
+            throw new IOException("No symbol table in the file");
         }
     }
 
-    private void readSectionsHeaders() throws IOException {
-        reader.jump(eShoff);
+    private void readSectionsHeaders32(SectionLayout.Builder sections) throws IOException {
         for (int i = 0; i < eShNum; i++) {
-            int shName, shType, shAddr, shOffset, shSize;
-            shName = reader.readInt(4);
-            shType = reader.readInt(4);
-
-            if (shType != 2 && shType != 3 && !getName(shName).equals(".text")) {
-                reader.skipBytes(32);
-                continue;
-            }
+            reader.skipBytes(4);
+            int shType = reader.readInt(4);
+            long shFlags = reader.readLong(4);
+            long shAddr = reader.readLong(4);
+            long shOffset = reader.readLong(4);
+            long shSize = reader.readLong(4);
+            reader.skipBytes(8);
+            long shAddralign = reader.readLong(4);
+            reader.skipBytes(4);
+            putSection(sections, i, shType, shFlags, shAddr, shOffset, shSize, shAddralign);
+        }
+    }
 
+    private void readSectionsHeaders64(SectionLayout.Builder sections) throws IOException {
+        for (int i = 0; i < eShNum; i++) {
             reader.skipBytes(4);
-            shAddr = reader.readInt(4);
-            shOffset = reader.readInt(4);
-            shSize = reader.readInt(4);
-            reader.skipBytes(16);
+            int shType = reader.readInt(4);
+            long shFlags = reader.readLong(8);
+            long shAddr = reader.readLong(8);
+            long shOffset = reader.readLong(8);
+            long shSize = reader.readLong(8);
+            reader.skipBytes(8);
+            long shAddralign = reader.readLong(8);
+            reader.skipBytes(8);
+            putSection(sections, i, shType, shFlags, shAddr, shOffset, shSize, shAddralign);
+        }
+    }
 
-            if (shType == 2) {
-                symtableOffset = shOffset;
-                symtableSize = shSize;
-            } else if (shType == 3) {
-                if (shOffset != strtableOffset) {
-                    throw new IOException("Invalid format: file contains for multiple string tables");
-                }
-            } else {
-                textAddr = shAddr;
-                textOffset = shOffset;
-                textSize = shSize;
+    private void putSection(SectionLayout.Builder sections, int index, int shType, long shFlags, long shAddr,
+                            long shOffset, long shSize, long shAddralign) throws IOException {
+        sectionAddresses[index] = -1;
+        if (shType == 2) {
+            symtableOffset = shOffset;
+            symtableSize = shSize;
+        } else if (shType == 3) {
+            if (shOffset != strtableOffset) {
+                throw new IOException("Invalid format: file contains for multiple string tables");
             }
-        }
-        if (textOffset == -1) {
-            throw new IOException("No .text section in the file");
-        }
-        if (symtableOffset == -1) {
-            throw new IOException("No symbol table in the file");
+        } else if ((shFlags & SHF_EXECINSTR) != 0 && shType != SHT_NOBITS && shSize > 0) {
+            if (eType == ET_REL) {
+                // All sections of a relocatable file start at 0, so they are placed one after another
+                long align = Math.max(shAddralign, 1);
+                shAddr = (relocatableEnd + align - 1) & -align;
+                relocatableEnd = shAddr + shSize;
+            }
+            sectionAddresses[index] = shAddr;
+            sections.addSection(shAddr, shOffset, shSize);
         }
     }
 
-    private void readSymTable() throws IOException {
-        marks = new HashMap<>();
+    private interface SymbolVisitor {
+        void visit(int stName, int stInfo, int stShndx, long stValue, long stSize);
+    }
+
+    private void readSymTable(SectionLayout.Builder sections) throws IOException {
+        SymbolIndex.Builder builder = new SymbolIndex.Builder();
+        readSymTable((stName, stInfo, stShndx, stValue, stSize) ->
+                putSymbol(builder, sections, stName, stInfo, stShndx, stValue, stSize));
+        marks = builder.build(stringTable::getName);
+    }
+
+    private void readSymTable(SymbolVisitor visitor) throws IOException {
         if (symtableOffset == -1) {
             return;
         }
         reader.jump(symtableOffset);
+        if (elf64) {
+            readSymTable64(visitor);
+        } else {
+            readSymTable32(visitor);
+        }
+    }
 
-        for (int i = 0; i < symtableSize; i += 16) {
-            int stName, stValue, stInfo;
+    private void readSymTable32(SymbolVisitor visitor) throws IOException {
+        for (long i = 0; i < symtableSize; i += 16) {
+            int stName, stInfo, stShndx;
+            long stValue, stSize;
             stName = reader.readInt(4);
-            stValue = reader.readInt(4);
-            reader.skipBytes(4);
+            stValue = reader.readLong(4);
+            stSize = reader.readLong(4);
             stInfo = reader.read();
-            reader.skipBytes(3);
+            reader.skipBytes(1);
+            stShndx = reader.readInt(2);
+            visitor.visit(stName, stInfo, stShndx, stValue, stSize);
+        }
+    }
+
+    private void readSymTable64(SymbolVisitor visitor) throws IOException {
+        for (long i = 0; i < symtableSize; i += 24) {
+            int stName, stInfo, stShndx;
+            long stValue, stSize;
+            stName = reader.readInt(4);
+            stInfo = reader.read();
+            reader.skipBytes(1);
+            stShndx = reader.readInt(2);
+            stValue = reader.readLong(8);
+            stSize = reader.readLong(8);
+            visitor.visit(stName, stInfo, stShndx, stValue, stSize);
+        }
+    }
+
+    private void putSymbol(SymbolIndex.Builder builder, SectionLayout.Builder sections, int stName, int stInfo,
+                           int stShndx, long stValue, long stSize) {
+        long address = markAddress(stInfo, stShndx, stValue, stSize);
+        if (address == NO_SYMBOL) {
+            return;
+        }
+        builder.add(address, stName);
+        if ((stInfo & 0xf) == STT_OBJECT) {
+            sections.addObject(address, stSize);
+        }
+    }
 
-            if ((stInfo & 0xf) == 2) {
-                marks.put(stValue, getName(stName));
+    /**
+     * Functions become marks. Objects with a size inside executable sections become marks too
+     * and their bytes are printed as data. Symbols of relocatable files are moved with their sections.
+     * Returns the address of the mark or {@link #NO_SYMBOL} if the symbol is not one.
+     */
+    private long markAddress(int stInfo, int stShndx, long stValue, long stSize) {
+        boolean executable = stShndx < eShNum && sectionAddresses[stShndx] != -1;
+        if (eType == ET_REL) {
+            if (!executable) {
+                return NO_SYMBOL;
             }
+            stValue += sectionAddresses[stShndx];
+        }
+        int stType = stInfo & 0xf;
+        if (stType == STT_FUNC || stType == STT_OBJECT && executable && stSize > 0) {
+            return stValue;
         }
+        return NO_SYMBOL;
     }
 
-    private void disassembleText(Writer writer) throws IOException {
-        if (strtableOffset == -1) {
-            throw new IOException("Section .text not found");
+    /**
+     * Returns the address of the first function or code object named {@code name} in the symbol table,
+     * or {@link #NO_SYMBOL}. The table is scanned in file order and names are compared in place, so aliases
+     * that share an address with another symbol are found too.
+     */
+    public long findSymbol(String name) throws IOException {
+        readHeaders();
+        if (rawSymbols != null) {
+            for (int i = 0; i < rawSymbols.size(); i++) {
+                long address = rawSymbols.getAddress(i);
+                if (rawSymbols.getName(i).equals(name)
+                        && (rawSymbols.isCode(i) || layout.sectionIndexOf(address) >= 0)) {
+                    return address;
+                }
+            }
+            return NO_SYMBOL;
+        }
+        long[] found = {NO_SYMBOL};
+        readSymTable((stName, stInfo, stShndx, stValue, stSize) -> {
+            if (found[0] == NO_SYMBOL && stringTable.matches(stName, name)) {
+                found[0] = markAddress(stInfo, stShndx, stValue, stSize);
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * Decodes the executable sections with sequential reads. Data pieces and trailing bytes
+     * of code pieces go to {@link InstructionVisitor#visitData}.
+     */
+    private void decodeText(InstructionVisitor visitor) throws IOException {
+        decodeText(visitor, counters);
+    }
+
+    private void decodeText(InstructionVisitor visitor, DisassemblyStats counters) throws IOException {
+        LabelSet countedLabels = labels == null ? LabelSet.EMPTY : labels;
+        DecodedInstruction instruction = new DecodedInstruction();
+        PieceBlocks blocks = new PieceBlocks(reader, toEndOfInput);
+        for (int piece = 0; piece < layout.size(); piece++) {
+            long address = layout.getAddress(piece);
+            blocks.start(layout.getOffset(piece), layout.getSize(piece));
+            long offset = 0;
+            if (!layout.isData(piece)) {
+                for (; offset + 2 <= blocks.size(); offset += instruction.getLength()) {
+                    int parcel = blocks.getShort(offset);
+                    if (!RiscVDisassembler.isFullSize(parcel)) {
+                        decoder.decodeCompressed(address + offset, parcel, instruction);
+                    } else if (offset + 4 <= blocks.size()) {
+                        decoder.decode(address + offset, blocks.getInt(offset), instruction);
+                    } else {
+                        visitor.visitData(address + offset, 2, parcel);
+                        if (counters != null) {
+                            counters.countData(2);
+                        }
+                        offset += 2;
+                        break;
+                    }
+                    visitor.visit(instruction);
+                    if (counters != null) {
+                        counters.countInstruction(instruction, marks, countedLabels);
+                    }
+                }
+            }
+            for (int width; offset < blocks.size(); offset += width) {
+                width = dataWidth(blocks.size() - offset);
+                visitor.visitData(address + offset, width, blocks.getData(offset, width));
+                if (counters != null) {
+                    counters.countData(width);
+                }
+            }
+        }
+    }
+
+    /**
+     * Data is printed in words from the start of a piece, the tail in a halfword and a byte.
+     */
+    private static int dataWidth(long remaining) {
+        return remaining >= 4 ? 4 : remaining >= 2 ? 2 : 1;
+    }
+
+    /**
+     * Collects branch and jump targets in executable sections for local labels. This pass only looks
+     * at opcodes, so it is much cheaper than decoding and rendering.
+     */
+    void readLabels() throws IOException {
+        if (labels != null) {
+            return;
+        }
+        if (reader.isRandomAccess()) {
+            SeekIndex.Builder seekPoints = new SeekIndex.Builder();
+            labels = collectLabels(layout.getStart(), layout.getEnd(), seekPoints).build();
+            seekIndex = seekPoints.build();
+            return;
+        }
+        LabelSet.Builder builder = newLabelBuilder();
+        PieceBlocks blocks = new PieceBlocks(reader, false);
+        for (int piece = 0; piece < layout.size(); piece++) {
+            if (layout.isData(piece)) {
+                continue;
+            }
+            long address = layout.getAddress(piece);
+            long size = layout.getSize(piece);
+            blocks.start(layout.getOffset(piece), size);
+            for (long offset = 0; offset + 2 <= size; ) {
+                long target;
+                int parcel = blocks.getShort(offset);
+                if (!RiscVDisassembler.isFullSize(parcel)) {
+                    target = decoder.getCompressedTarget(address + offset, parcel);
+                    offset += 2;
+                } else if (offset + 4 <= size) {
+                    target = decoder.getTarget(address + offset, blocks.getInt(offset));
+                    offset += 4;
+                } else {
+                    break;
+                }
+                addLabel(builder, target);
+            }
+        }
+        labels = builder.build();
+    }
+
+    private LabelSet.Builder newLabelBuilder() {
+        return new LabelSet.Builder(layout.getStart(), layout.getEnd() - layout.getStart());
+    }
+
+    /**
+     * Adds a target to the labels if it points into an executable section.
+     */
+    private void addLabel(LabelSet.Builder builder, long target) {
+        if (target != RiscVDisassembler.NO_TARGET && layout.sectionIndexOf(target) >= 0) {
+            builder.add(target);
+        }
+    }
+
+    /**
+     * Collects targets of the instructions starting in {@code [from, to)}.
+     */
+    private LabelSet.Builder collectLabels(long from, long to) throws IOException {
+        return collectLabels(from, to, null);
+    }
+
+    /**
+     * Collects targets like {@link #collectLabels(long, long)} and, unless {@code seekPoints} is null,
+     * adds the address after every {@link #SEEK_COMMANDS}-th instruction to it.
+     */
+    private LabelSet.Builder collectLabels(long from, long to, SeekIndex.Builder seekPoints) throws IOException {
+        LabelSet.Builder builder = newLabelBuilder();
+        int commands = 0;
+        for (int piece = firstPiece(from); piece < layout.size() && before(layout.getAddress(piece), to); piece++) {
+            if (layout.isData(piece)) {
+                continue;
+            }
+            long address = layout.getAddress(piece);
+            long fileOffset = layout.getOffset(piece);
+            long size = layout.getSize(piece);
+            long limit = limit(piece, to);
+            for (long offset = startOffset(piece, from); offset + 2 <= size && offset < limit; ) {
+                long target;
+                int parcel = reader.getShort(fileOffset + offset);
+                if (!RiscVDisassembler.isFullSize(parcel)) {
+                    target = decoder.getCompressedTarget(address + offset, parcel);
+                    offset += 2;
+                } else if (offset + 4 <= size) {
+                    target = decoder.getTarget(address + offset, reader.getInt(fileOffset + offset));
+                    offset += 4;
+                } else {
+                    break;
+                }
+                addLabel(builder, target);
+                if (seekPoints != null && ++commands == SEEK_COMMANDS) {
+                    seekPoints.add(address + offset);
+                    commands = 0;
+                }
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Index of the first piece that may contain the address.
+     */
+    private int firstPiece(long address) {
+        return Math.max(0, layout.floorIndex(address));
+    }
+
+    /**
+     * Offset in the piece where a range starting at {@code from} begins, 0 if it starts before the piece.
+     */
+    private long startOffset(int piece, long from) {
+        long address = layout.getAddress(piece);
+        return before(from, address) ? 0 : from - address;
+    }
+
+    /**
+     * Offset in the piece where a range ending at {@code to} ends, at most the size of the piece.
+     */
+    private long limit(int piece, long to) {
+        long limit = to - layout.getAddress(piece);
+        return before(limit, layout.getSize(piece)) ? limit : layout.getSize(piece);
+    }
+
+    private static boolean before(long address, long other) {
+        return Long.compareUnsigned(address, other) < 0;
+    }
+
+    /**
+     * Splits the code into chunks processed on a pool in two passes: labels are collected from all chunks,
+     * then chunks are rendered with at most {@code 4 * threads} in flight and written in address order.
+     * Chunk boundaries are found once by a scan over instruction lengths, so they never split an instruction.
+     * A chunk may span many small sections, and a large section is split into several chunks.
+     */
+    private void disassembleTextParallel(ByteOutput out) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long[] bounds = findChunkBounds();
+            List<ForkJoinTask<LabelSet.Builder>> labelTasks = new ArrayList<>(bounds.length);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                labelTasks.add(pool.submit(() -> collectLabels(from, to)));
+            }
+            LabelSet.Builder builder = newLabelBuilder();
+            for (ForkJoinTask<LabelSet.Builder> task : labelTasks) {
+                builder.addAll(task.get());
+            }
+            labels = builder.build();
+            SeekIndex.Builder seekPoints = new SeekIndex.Builder();
+            for (long bound : bounds) {
+                seekPoints.add(bound);
+            }
+            seekIndex = seekPoints.build();
+
+            ArrayDeque<ForkJoinTask<ByteOutput>> inFlight = new ArrayDeque<>();
+            int submitted = 0;
+            while (submitted + 1 < bounds.length || !inFlight.isEmpty()) {
+                while (submitted + 1 < bounds.length && inFlight.size() < 4 * threads) {
+                    long from = bounds[submitted];
+                    long to = bounds[++submitted];
+                    inFlight.add(pool.submit(() -> disassembleChunk(from, to)));
+                }
+                out.put(inFlight.remove().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Disassembly interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns chunk boundaries as addresses. Every chunk holds about {@link #CHUNK_COMMANDS} instructions
+     * or data items, boundaries fall where the sequential sweep would continue.
+     */
+    private long[] findChunkBounds() throws IOException {
+        long[] bounds = new long[16];
+        int count = 0;
+        bounds[count++] = layout.getStart();
+        int commands = 0;
+        for (int piece = 0; piece < layout.size(); piece++) {
+            long address = layout.getAddress(piece);
+            long fileOffset = layout.getOffset(piece);
+            long size = layout.getSize(piece);
+            boolean data = layout.isData(piece);
+            for (long offset = 0; offset < size; ) {
+                if (!data && offset + 2 <= size && !RiscVDisassembler.isFullSize(reader.getShort(fileOffset + offset))) {
+                    offset += 2;
+                } else if (!data && offset + 4 <= size) {
+                    offset += 4;
+                } else {
+                    // data, or the tail of a code piece once an instruction no longer fits
+                    data = true;
+                    offset += dataWidth(size - offset);
+                }
+                if (++commands >= CHUNK_COMMANDS && offset < size) {
+                    if (count == bounds.length) {
+                        bounds = Arrays.copyOf(bounds, 2 * count);
+                    }
+                    bounds[count++] = address + offset;
+                    commands = 0;
+                }
+            }
+        }
+        if (count == bounds.length) {
+            bounds = Arrays.copyOf(bounds, count + 1);
+        }
+        bounds[count++] = layout.getEnd();
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private ByteOutput disassembleChunk(long from, long to) throws IOException {
+        ByteOutput out = new ByteOutput((int) Math.min(to - from, 4L * CHUNK_COMMANDS) * 10);
+        DisassemblyStats chunkCounters = counters == null ? null : new DisassemblyStats();
+        renderText(from, to, out, chunkCounters, labels);
+        if (chunkCounters != null) {
+            counters.add(chunkCounters);
+        }
+        return out;
+    }
+
+    /**
+     * Renders the instructions and data that start in {@code [from, to)}. Returns the address where
+     * rendering stopped, which is past {@code to} if the last instruction crosses it.
+     * {@code from} must be a point where the sequential sweep passes, such as the start of a piece.
+     */
+    long renderText(long from, long to, ByteOutput out) throws IOException {
+        return renderText(from, to, out, counters, labels);
+    }
+
+    private long renderText(long from, long to, ByteOutput out, DisassemblyStats counters, LabelSet labels)
+            throws IOException {
+        DecodedInstruction instruction = new DecodedInstruction();
+        long position = from;
+        for (int piece = firstPiece(from); piece < layout.size() && before(layout.getAddress(piece), to); piece++) {
+            long address = layout.getAddress(piece);
+            long fileOffset = layout.getOffset(piece);
+            long size = layout.getSize(piece);
+            long limit = limit(piece, to);
+            long offset = startOffset(piece, from);
+            if (offset >= size) {
+                continue;
+            }
+            if (!layout.isData(piece)) {
+                for (; offset + 2 <= size && offset < limit; offset += instruction.getLength()) {
+                    int parcel = reader.getShort(fileOffset + offset);
+                    if (!RiscVDisassembler.isFullSize(parcel)) {
+                        decoder.decodeCompressed(address + offset, parcel, instruction);
+                    } else if (offset + 4 <= size) {
+                        decoder.decode(address + offset, reader.getInt(fileOffset + offset), instruction);
+                    } else {
+                        break;
+                    }
+                    TextRenderer.appendLine(out, instruction, marks, labels, operands);
+                    if (counters != null) {
+                        counters.countInstruction(instruction, marks, labels);
+                    }
+                }
+            }
+            for (int width; offset < size && offset < limit; offset += width) {
+                width = dataWidth(size - offset);
+                RiscVDisassembler.appendData(out, address + offset, width, getData(fileOffset + offset, width),
+                        marks, labels);
+                out.putLine();
+                if (counters != null) {
+                    counters.countData(width);
+                }
+            }
+            position = address + offset;
+        }
+        return position;
+    }
+
+    private long getData(long index, int width) throws IOException {
+        switch (width) {
+            case 4:
+                return Integer.toUnsignedLong(reader.getInt(index));
+            case 2:
+                return reader.getShort(index);
+            default:
+                return reader.getByte(index);
+        }
+    }
+
+    /**
+     * Steps over instructions and data like {@link #renderText} without decoding.
+     * Returns the address where it stopped.
+     */
+    long skipText(long from, long to) throws IOException {
+        long position = from;
+        for (int piece = firstPiece(from); piece < layout.size() && before(layout.getAddress(piece), to); piece++) {
+            long address = layout.getAddress(piece);
+            long fileOffset = layout.getOffset(piece);
+            long size = layout.getSize(piece);
+            long limit = limit(piece, to);
+            long offset = startOffset(piece, from);
+            if (offset >= size) {
+                continue;
+            }
+            if (!layout.isData(piece)) {
+                while (offset + 2 <= size && offset < limit) {
+                    boolean fullSize = RiscVDisassembler.isFullSize(reader.getShort(fileOffset + offset));
+                    if (fullSize && offset + 4 > size) {
+                        break;
+                    }
+                    offset += fullSize ? 4 : 2;
+                }
+            }
+            while (offset < size && offset < limit) {
+                offset += dataWidth(size - offset);
+            }
+            position = address + offset;
+        }
+        return position;
+    }
+
+    /**
+     * Compares {@code length} bytes at an address with the same address in another file.
+     * Both ranges must lie inside one executable section.
+     */
+    boolean textEquals(long address, ElfReader other, long length) throws IOException {
+        int section = layout.sectionIndexOf(address);
+        int otherSection = other.layout.sectionIndexOf(address);
+        if (section < 0 || otherSection < 0 || layout.getSectionEnd(section) - address < length
+                || other.layout.getSectionEnd(otherSection) - address < length) {
+            return false;
+        }
+        long from = layout.getFileOffset(section, address);
+        long otherFrom = other.layout.getFileOffset(otherSection, address);
+        long i = 0;
+        for (; i + 8 <= length; i += 8) {
+            if (reader.getLong(from + i) != other.reader.getLong(otherFrom + i)) {
+                return false;
+            }
+        }
+        for (; i < length; i++) {
+            if (reader.getByte(from + i) != other.reader.getByte(otherFrom + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that branches and jumps starting in {@code [from, to)} are annotated the same way
+     * as in another file: with the same symbol name, with a local label in both, or not at all.
+     */
+    boolean sameTargetNames(long from, long to, ElfReader other) throws IOException {
+        for (int piece = firstPiece(from); piece < layout.size() && before(layout.getAddress(piece), to); piece++) {
+            if (layout.isData(piece)) {
+                continue;
+            }
+            long address = layout.getAddress(piece);
+            long fileOffset = layout.getOffset(piece);
+            long size = layout.getSize(piece);
+            long limit = limit(piece, to);
+            for (long offset = startOffset(piece, from); offset + 2 <= size && offset < limit; ) {
+                long target;
+                int parcel = reader.getShort(fileOffset + offset);
+                if (!RiscVDisassembler.isFullSize(parcel)) {
+                    target = decoder.getCompressedTarget(address + offset, parcel);
+                    offset += 2;
+                } else if (offset + 4 <= size) {
+                    target = decoder.getTarget(address + offset, reader.getInt(fileOffset + offset));
+                    offset += 4;
+                } else {
+                    break;
+                }
+                if (target != RiscVDisassembler.NO_TARGET && !sameTargetName(target, other)) {
+                    return false;
+                }
+            }
         }
+        return true;
+    }
 
-        int commands = textSize / 4;
-        reader.jump(textOffset);
-        for (int i = 0; i < commands; i++) {
-            writer.write(RiscVDisassembler.disassemble(textAddr + 4 * i, reader.readInt(4), marks));
-            writer.write(System.lineSeparator());
+    private boolean sameTargetName(long target, ElfReader other) {
+        int index = marks.indexOf(target);
+        int otherIndex = other.marks.indexOf(target);
+        if (index >= 0 || otherIndex >= 0) {
+            return index >= 0 && otherIndex >= 0 && marks.getName(index).equals(other.marks.getName(otherIndex));
         }
+        return labels.contains(target) == other.labels.contains(target);
     }
 
-    private String getName(int shName) {
-        StringBuilder sb = new StringBuilder();
-        while (stringTable[shName] != 0){
-            sb.append(stringTable[shName++]);
+    /**
+     * Returns the next symbol after the address or the end of its executable section, whichever comes first.
+     * Outside executable sections returns the address itself.
+     */
+    public long getFunctionEnd(long address) {
+        int section = layout.sectionIndexOf(address);
+        if (section < 0) {
+            return address;
         }
-        return sb.toString();
+        long end = layout.getSectionEnd(section);
+        int next = marks.floorIndex(address) + 1;
+        if (next < marks.size() && before(marks.getAddress(next), end)) {
+            return marks.getAddress(next);
+        }
+        return end;
+    }
+
+    LabelSet getLabels() {
+        return labels;
+    }
+
+    SectionLayout getLayout() {
+        return layout;
+    }
+
+    boolean isElf64() {
+        return elf64;
+    }
+
+    boolean hasNumericRegisters() {
+        return operands == OperandTable.NUMERIC;
+    }
+
+    public SymbolIndex getSymbols() {
+        return marks;
     }
 
     @Override
     public void close() throws IOException {
         reader.close();
     }
+
+    /**
+     * Renders lines with the labels of the current window and its neighbours. Before the first line of a window,
+     * a label sweep over the code is advanced to one window past it, so the labels of the window are complete.
+     * Builders of four windows are kept in a ring: the previous, current and two ahead.
+     */
+    private final class WindowedRenderer implements InstructionVisitor {
+        private final ByteOutput out;
+        private final long base = layout.getStart();
+        private final LabelSet.Builder[] builders = new LabelSet.Builder[4];
+        private final long[] builderWindows = {-1, -1, -1, -1};
+        private final LabelSet.Builder merged = newLabelBuilder();
+        private final PieceBlocks blocks = new PieceBlocks(reader, toEndOfInput);
+        private LabelSet window = LabelSet.EMPTY;
+        private long current;
+        private long windowEnd = base;
+        /**
+         * Position of the label sweep: the piece and the offset in it, -1 before the piece is started.
+         */
+        private int piece;
+        private long offset = -1;
+        /**
+         * Address where the input ends, once the sweep has reached it in an image read to the end of the input.
+         */
+        private long inputEnd = -1;
+
+        WindowedRenderer(ByteOutput out) {
+            this.out = out;
+            for (int i = 0; i < builders.length; i++) {
+                builders[i] = newLabelBuilder();
+            }
+        }
+
+        @Override
+        public void visit(DecodedInstruction instruction) throws IOException {
+            enter(instruction.getAddress());
+            TextRenderer.appendLine(out, instruction, marks, window, operands);
+            if (counters != null) {
+                counters.countInstruction(instruction, marks, window);
+            }
+        }
+
+        @Override
+        public void visitData(long address, int size, long value) throws IOException {
+            enter(address);
+            RiscVDisassembler.appendData(out, address, size, value, marks, window);
+            out.putLine();
+            if (counters != null) {
+                counters.countData(size);
+            }
+        }
+
+        /**
+         * Switches to the window of the address when it is past the current one.
+         */
+        private void enter(long address) throws IOException {
+            if (before(address, windowEnd)) {
+                return;
+            }
+            current = (address - base) >>> WINDOW_BITS;
+            windowEnd = base + ((current + 1) << WINDOW_BITS);
+            long sweepEnd = windowEnd + (1L << WINDOW_BITS);
+            sweep(before(sweepEnd, windowEnd) ? -1 : sweepEnd);
+            merged.clear();
+            for (int i = 0; i < builders.length; i++) {
+                if (builderWindows[i] + 1 >= current && builderWindows[i] <= current + 1) {
+                    merged.addAll(builders[i]);
+                }
+            }
+            if (inputEnd != -1) {
+                merged.retainBefore(inputEnd);
+            }
+            window = merged.build();
+        }
+
+        /**
+         * Collects targets of the instructions before {@code to} that were not swept yet.
+         */
+        private void sweep(long to) throws IOException {
+            for (; piece < layout.size(); piece++, offset = -1) {
+                long address = layout.getAddress(piece);
+                if (!before(address, to)) {
+                    return;
+                }
+                if (offset < 0) {
+                    if (layout.isData(piece) && !toEndOfInput) {
+                        continue;
+                    }
+                    blocks.start(layout.getOffset(piece), layout.getSize(piece));
+                    offset = 0;
+                }
+                for (; layout.isData(piece) && offset < blocks.size(); offset += 4) {
+                    if (!before(address + offset, to)) {
+                        return;
+                    }
+                    blocks.getData(offset, dataWidth(blocks.size() - offset));
+                }
+                while (offset + 2 <= blocks.size()) {
+                    if (!before(address + offset, to)) {
+                        return;
+                    }
+                    long target;
+                    int parcel = blocks.getShort(offset);
+                    if (!RiscVDisassembler.isFullSize(parcel)) {
+                        target = decoder.getCompressedTarget(address + offset, parcel);
+                        offset += 2;
+                    } else if (offset + 4 <= blocks.size()) {
+                        target = decoder.getTarget(address + offset, blocks.getInt(offset));
+                        offset += 4;
+                    } else {
+                        break;
+                    }
+                    add(target);
+                }
+                if (inputEnd == -1 && blocks.size() < layout.getSize(piece)) {
+                    inputEnd = address + blocks.size();
+                }
+            }
+        }
+
+        /**
+         * Adds a target to the builder of its window. Targets outside the live windows can only come
+         * from addresses that wrap around and are dropped.
+         */
+        private void add(long target) {
+            if (target == RiscVDisassembler.NO_TARGET || layout.sectionIndexOf(target) < 0) {
+                return;
+            }
+            long targetWindow = (target - base) >>> WINDOW_BITS;
+            if (targetWindow + 1 < current || targetWindow > current + 2) {
+                return;
+            }
+            int slot = (int) targetWindow & 3;
+            if (builderWindows[slot] != targetWindow) {
+                builders[slot].clear();
+                builderWindows[slot] = targetWindow;
+            }
+            builders[slot].add(target);
+        }
+    }
+
+    /**
+     * Bytes of one piece read ahead in blocks with {@link DataReader#readFully}, so the sequential decode
+     * loops take parcels and words from a little-endian heap buffer instead of calling the reader for each.
+     * Offsets are relative to the piece and must not decrease. Every block is read from its own file offset,
+     * so several instances may share a reader.
+     * <p>
+     * When the input may end inside a piece, the first block is read on start and a read keeps {@link #LOOKAHEAD}
+     * bytes ahead of its offset in the block. So for offsets up to 4 past the last one read {@link #size()} tells
+     * whether the bytes exist: either the block has them or the end of the input has been found.
+     */
+    private static final class PieceBlocks {
+        private static final int BLOCK_SIZE = 1 << 16;
+        private static final int LOOKAHEAD = 8;
+
+        private final DataReader reader;
+        private final boolean toEndOfInput;
+        private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long fileOffset;
+        private long size;
+        /**
+         * Piece offset of the first byte in the block.
+         */
+        private long base;
+        /**
+         * Bytes of the piece read so far.
+         */
+        private long read;
+
+        PieceBlocks(DataReader reader, boolean toEndOfInput) {
+            this.reader = reader;
+            this.toEndOfInput = toEndOfInput;
+        }
+
+        void start(long fileOffset, long size) throws IOException {
+            this.fileOffset = fileOffset;
+            this.size = size;
+            base = 0;
+            read = 0;
+            block.clear().limit(0);
+            if (toEndOfInput) {
+                index(0, 0);
+            }
+        }
+
+        /**
+         * Size of the piece, cut where the input ends once that is reached.
+         */
+        long size() {
+            return size;
+        }
+
+        int getShort(long offset) throws IOException {
+            return block.getShort(index(offset, 2)) & 0xffff;
+        }
+
+        int getInt(long offset) throws IOException {
+            return block.getInt(index(offset, 4));
+        }
+
+        long getData(long offset, int width) throws IOException {
+            int index = index(offset, width);
+            switch (width) {
+                case 4:
+                    return Integer.toUnsignedLong(block.getInt(index));
+                case 2:
+                    return block.getShort(index) & 0xffff;
+                default:
+                    return block.get(index) & 0xff;
+            }
+        }
+
+        /**
+         * Returns the block index of the offset, reading the next block first if the value does not fit.
+         * Unread bytes are moved to the front of the block.
+         */
+        private int index(long offset, int length) throws IOException {
+            int index = (int) (offset - base);
+            if (index + LOOKAHEAD <= block.limit() || read == size && index + length <= block.limit()) {
+                return index;
+            }
+            block.position(index).compact();
+            base = offset;
+            block.limit(block.position() + (int) Math.min(block.remaining(), size - read));
+            reader.jump(fileOffset + read);
+            int requested = block.remaining();
+            try {
+                reader.readFully(block);
+                read += requested;
+            } catch (EOFException e) {
+                if (!toEndOfInput) {
+                    throw e;
+                }
+                read += requested - block.remaining();
+                size = read;
+            }
+            block.flip();
+            return 0;
+        }
+    }
 }
@@ -0,0 +1,256 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Disassembles a file reusing the listing of its previous build. Executable sections are split into functions
+ * at symbol addresses. A function with the same address, end, name, bytes, data pieces and labels as before
+ * is copied from the previous listing, the rest is decoded again. Runs of unchanged functions are copied at once, so
+ * the previous listing is only searched where a run starts or ends. The result is the same as a full
+ * disassembly as long as the previous listing was produced from the previous file by this version.
+ * To catch a listing written with other options or by another version, the first kilobyte of the previous
+ * code is rendered again with the current options; if its lines differ, the file is disassembled in full.
+ */
+public class IncrementalDisassembler {
+    private static final int SAMPLE_BYTES = 1 << 10;
+
+    private IncrementalDisassembler() {
+    }
+
+    /**
+     * Writes the listing of {@code current} to {@code out} and flushes it.
+     * Returns the number of functions copied from the previous listing.
+     */
+    public static int disassemble(ElfReader previous, Path previousListing, ElfReader current, ByteOutput out)
+            throws IOException {
+        previous.setNumericRegisters(current.hasNumericRegisters());
+        previous.readHeaders();
+        previous.readLabels();
+        current.readHeaders();
+        current.readLabels();
+        SectionLayout layout = current.getLayout();
+        boolean sameDecoder = previous.isElf64() == current.isElf64();
+        int reused = 0;
+        try (Listing listing = new Listing(previousListing)) {
+            if (!sameFormat(previous, listing)) {
+                current.disassemble(out);
+                return 0;
+            }
+            for (int section = 0; section < layout.getSectionCount(); section++) {
+                long end = layout.getSectionEnd(section);
+                // Address where the linear sweep continues. It is past the function start
+                // when the last instruction of the previous function crossed the boundary.
+                long position = layout.getSectionAddress(section);
+                // Start of the current run of unchanged functions or -1. Inside a run the old sweep is aligned.
+                // Runs end with the section, so lines of sections removed since the previous build are not copied.
+                long runStart = -1;
+                for (long start = position; Long.compareUnsigned(start, end) < 0; ) {
+                    long functionEnd = current.getFunctionEnd(start);
+                    if (sameDecoder && position == start && isUnchanged(previous, current, start, functionEnd)
+                            && (runStart != -1 || listing.hasLine(start))) {
+                        if (runStart == -1) {
+                            runStart = start;
+                        }
+                        position = functionEnd;
+                        reused++;
+                    } else {
+                        if (runStart != -1) {
+                            listing.copy(runStart, start, out);
+                            runStart = -1;
+                        }
+                        if (Long.compareUnsigned(position, functionEnd) < 0) {
+                            position = current.renderText(position, functionEnd, out);
+                        }
+                    }
+                    start = functionEnd;
+                }
+                if (runStart != -1) {
+                    listing.copy(runStart, end, out);
+                }
+            }
+        }
+        out.flush();
+        return reused;
+    }
+
+    /**
+     * Renders the start of the previous code and compares it with the previous listing.
+     */
+    private static boolean sameFormat(ElfReader previous, Listing listing) throws IOException {
+        SectionLayout layout = previous.getLayout();
+        if (layout.getSectionCount() == 0) {
+            return true;
+        }
+        long start = layout.getSectionAddress(0);
+        long sampleEnd = start + Math.min(SAMPLE_BYTES, layout.getSectionEnd(0) - start);
+        ByteOutput sample = new ByteOutput(SAMPLE_BYTES * 8);
+        long end = previous.renderText(start, sampleEnd, sample);
+        return listing.matches(start, end, sample);
+    }
+
+    /**
+     * Checks that the function has the same bounds, name, bytes and data pieces as before and that the sweep
+     * ends exactly at its end, so no instruction crosses into the next function.
+     * Local labels inside it and the names printed for its branch targets must not change either.
+     */
+    private static boolean isUnchanged(ElfReader previous, ElfReader current, long start, long end)
+            throws IOException {
+        if (previous.getLayout().sectionIndexOf(start) < 0) {
+            return false;
+        }
+        String name = functionName(current, start);
+        if (name == null || !name.equals(functionName(previous, start)) || previous.getFunctionEnd(start) != end) {
+            return false;
+        }
+        return current.skipText(start, end) == end
+                && current.textEquals(start, previous, end - start)
+                && current.getLayout().sameRange(previous.getLayout(), start, end)
+                && current.getLabels().sameRange(previous.getLabels(), start, end)
+                && current.sameTargetNames(start, end, previous);
+    }
+
+    /**
+     * Returns the name of the function starting at the address, "" for the code before the first symbol
+     * of a section, or null if no function starts there.
+     */
+    private static String functionName(ElfReader reader, long address) {
+        SymbolIndex symbols = reader.getSymbols();
+        int index = symbols.indexOf(address);
+        if (index >= 0) {
+            return symbols.getName(index);
+        }
+        SectionLayout layout = reader.getLayout();
+        int section = layout.sectionIndexOf(address);
+        return section >= 0 && layout.getSectionAddress(section) == address ? "" : null;
+    }
+
+    /**
+     * Previous listing. Lines are sorted by address, so the line of an address is found by searching
+     * over byte offsets without reading the whole file. Lookups come in address order, so each search
+     * gallops forward from the previous result.
+     */
+    private static final class Listing implements Closeable {
+        private final MappedDataReader data;
+        private final FileChannel channel;
+        private final long size;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long lastAddress;
+        private long lastLine;
+
+        Listing(Path path) throws IOException {
+            data = new MappedDataReader(path.toString());
+            channel = FileChannel.open(path);
+            size = data.size();
+        }
+
+        /**
+         * Returns the offset of the first line with an address at or after the given one, or the file size.
+         */
+        long find(long address) throws IOException {
+            if (address == lastAddress) {
+                return lastLine;
+            }
+            long lo = 0;
+            long hi = size;
+            if (Long.compareUnsigned(address, lastAddress) > 0) {
+                lo = lastLine;
+                long step = 64;
+                for (; lo + step < size && !isAtOrAfter(lo + step, address); step *= 2) {
+                    lo += step + 1;
+                }
+                hi = Math.min(size, lo + step);
+            }
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                if (isAtOrAfter(mid, address)) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            lastAddress = address;
+            lastLine = nextLine(lo);
+            return lastLine;
+        }
+
+        boolean hasLine(long address) throws IOException {
+            long line = find(address);
+            return line < size && addressAt(line) == address;
+        }
+
+        /**
+         * Copies the lines of addresses in {@code [from, to)}.
+         */
+        void copy(long from, long to, ByteOutput out) throws IOException {
+            long position = find(from);
+            long end = find(to);
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Previous listing changed while reading");
+                }
+                out.put(buffer.array(), 0, read);
+                position += read;
+            }
+        }
+
+        /**
+         * Whether the lines of addresses in {@code [from, to)} are exactly the lines written to {@code lines}.
+         */
+        boolean matches(long from, long to, ByteOutput lines) throws IOException {
+            long position = find(from);
+            long end = find(to);
+            if (end - position != lines.size()) {
+                return false;
+            }
+            String text = lines.toString();
+            for (int i = 0; i < text.length(); i++) {
+                if (data.getByte(position + i) != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Whether the first line starting at or after the offset has an address at or after the given one.
+         */
+        private boolean isAtOrAfter(long position, long address) throws IOException {
+            long line = nextLine(position);
+            return line == size || Long.compareUnsigned(addressAt(line), address) >= 0;
+        }
+
+        private long nextLine(long position) throws IOException {
+            while (position > 0 && position < size && data.getByte(position - 1) != '\n') {
+                position++;
+            }
+            return position;
+        }
+
+        private long addressAt(long line) throws IOException {
+            long address = 0;
+            for (long position = line; position < size; position++) {
+                int c = data.getByte(position);
+                if (c == ':') {
+                    return address;
+                }
+                int digit = Character.digit(c, 16);
+                if (digit < 0) {
+                    break;
+                }
+                address = address << 4 | digit;
+            }
+            throw new IOException("Invalid previous listing");
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                data.close();
+            }
+        }
+    }
+}
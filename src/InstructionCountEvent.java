@@ -0,0 +1,21 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event with the number of decoded instructions of one mnemonic, committed once per listing.
+ */
+@Name("riscv.InstructionCount")
+@Label("Instruction Count")
+@Category("RISC-V Disassembler")
+@Description("Number of instructions of one mnemonic decoded for a listing")
+@StackTrace(false)
+public class InstructionCountEvent extends jdk.jfr.Event {
+    @Label("Mnemonic")
+    public String mnemonic;
+
+    @Label("Count")
+    public long count;
+}
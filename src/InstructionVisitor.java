@@ -0,0 +1,16 @@
+import java.io.IOException;
+
+public interface InstructionVisitor {
+    /**
+     * Called for every decoded instruction in address order. The instance is reused between calls.
+     */
+    void visit(DecodedInstruction instruction) throws IOException;
+
+    /**
+     * Called in address order for bytes that are not decoded: data objects inside executable sections
+     * and trailing bytes too short for an instruction. {@code size} is 4, 2 or 1,
+     * {@code value} holds the bytes in little-endian order.
+     */
+    default void visitData(long address, int size, long value) throws IOException {
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.Arrays;
+
+/**
+ * Branch and jump targets inside executable sections, used for local labels. Targets are kept as a sorted
+ * {@code int[]} of halfword offsets from the lowest code address, so a set covers up to 4 GB of code.
+ * The renderer checks every address, so lookups go through a bucket index by the high bits of the offset
+ * with about two labels per bucket instead of a binary search.
+ */
+public class LabelSet {
+    public static final LabelSet EMPTY = new LabelSet(0, new int[0]);
+
+    private final long base;
+    private final int[] offsets;
+    private final int shift;
+    private final int[] buckets;
+
+    private LabelSet(long base, int[] offsets) {
+        this.base = base;
+        this.offsets = offsets;
+        long range = offsets.length == 0 ? 0 : offsets[offsets.length - 1] + 1L;
+        int shift = 0;
+        while (range >>> shift > Math.max(1, offsets.length / 2)) {
+            shift++;
+        }
+        this.shift = shift;
+        this.buckets = new int[(int) (range >>> shift) + 2];
+        for (int offset : offsets) {
+            buckets[(offset >>> shift) + 1]++;
+        }
+        for (int i = 1; i < buckets.length; i++) {
+            buckets[i] += buckets[i - 1];
+        }
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    public long getAddress(int index) {
+        return base + 2L * offsets[index];
+    }
+
+    public boolean contains(long address) {
+        return indexOf(address) >= 0;
+    }
+
+    /**
+     * Returns the index of the label at exactly this address or -1.
+     */
+    public int indexOf(long address) {
+        long offset = address - base;
+        if ((offset & 1) != 0 || offset < 0 || (offset >>> shift + 1) + 1 >= buckets.length) {
+            return -1;
+        }
+        int halfword = (int) (offset >>> 1);
+        int bucket = halfword >>> shift;
+        for (int i = buckets[bucket], end = buckets[bucket + 1]; i < end && offsets[i] <= halfword; i++) {
+            if (offsets[i] == halfword) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first label at or after this address, or {@link #size()}.
+     */
+    public int ceilingIndex(long address) {
+        long offset = address - base;
+        if (offset <= 0) {
+            return 0;
+        }
+        if ((offset + 1) >>> 1 > Integer.MAX_VALUE) {
+            return offsets.length;
+        }
+        int index = Arrays.binarySearch(offsets, (int) ((offset + 1) >>> 1));
+        return index < 0 ? -index - 1 : index;
+    }
+
+    /**
+     * Checks that both sets have the same labels in {@code [from, to)}.
+     */
+    public boolean sameRange(LabelSet other, long from, long to) {
+        int first = ceilingIndex(from);
+        int count = ceilingIndex(to) - first;
+        int otherFirst = other.ceilingIndex(from);
+        if (other.ceilingIndex(to) - otherFirst != count) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (getAddress(first + i) != other.getAddress(otherFirst + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static class Builder {
+        private final long base;
+        private final long size;
+        private int[] offsets = new int[256];
+        private int count;
+
+        /**
+         * Collects targets in {@code [base, base + size)}. Other targets are ignored.
+         */
+        public Builder(long base, long size) {
+            this.base = base;
+            this.size = Math.min(size, 2L * Integer.MAX_VALUE);
+        }
+
+        public Builder add(long address) {
+            long offset = address - base;
+            if (offset >= 0 && offset < size && (offset & 1) == 0) {
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, 2 * count);
+                }
+                offsets[count++] = (int) (offset >>> 1);
+            }
+            return this;
+        }
+
+        /**
+         * Removes all targets and keeps the capacity.
+         */
+        public Builder clear() {
+            count = 0;
+            return this;
+        }
+
+        /**
+         * Removes the targets at or after the address.
+         */
+        public Builder retainBefore(long address) {
+            long end = address - base;
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (2L * offsets[i] < end) {
+                    offsets[kept++] = offsets[i];
+                }
+            }
+            count = kept;
+            return this;
+        }
+
+        public Builder addAll(Builder other) {
+            if (count + other.count > offsets.length) {
+                offsets = Arrays.copyOf(offsets, Math.max(2 * offsets.length, count + other.count));
+            }
+            System.arraycopy(other.offsets, 0, offsets, count, other.count);
+            count += other.count;
+            return this;
+        }
+
+        /**
+         * Sorts and removes duplicates.
+         */
+        public LabelSet build() {
+            int[] sorted = sort();
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || sorted[unique - 1] != sorted[i]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            return new LabelSet(base, Arrays.copyOf(sorted, unique));
+        }
+
+        /**
+         * LSD radix sort of the offsets, one byte per pass. Passes where all offsets share the byte are skipped.
+         */
+        private int[] sort() {
+            int[] values = offsets;
+            int[] buffer = new int[count];
+            int[] counts = new int[256];
+            for (int shift = 0; shift < 32; shift += 8) {
+                Arrays.fill(counts, 0);
+                for (int i = 0; i < count; i++) {
+                    counts[(values[i] >>> shift) & 0xff]++;
+                }
+                if (count == 0 || counts[(values[0] >>> shift) & 0xff] == count) {
+                    continue;
+                }
+                for (int i = 0, sum = 0; i < 256; i++) {
+                    int n = counts[i];
+                    counts[i] = sum;
+                    sum += n;
+                }
+                for (int i = 0; i < count; i++) {
+                    int value = values[i];
+                    buffer[counts[(value >>> shift) & 0xff]++] = value;
+                }
+                int[] swap = values;
+                values = buffer;
+                buffer = swap;
+            }
+            return values;
+        }
+    }
+}
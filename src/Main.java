@@ -1,30 +1,367 @@
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.*;
 
 public class Main {
+    private static final int DEFAULT_CACHE_MEGABYTES = 1024;
+
     public static void main(String[] args) {
-        if (args.length < 1) {
+        List<String> files = new ArrayList<>();
+        int threads = 1;
+        int workers = Runtime.getRuntime().availableProcessors();
+        boolean batch = false;
+        String outputDir = null;
+        String cacheDir = null;
+        long cacheSize = DEFAULT_CACHE_MEGABYTES;
+        String previousElf = null;
+        String previousListing = null;
+        String cfgFormat = null;
+        boolean printStats = false;
+        String serverAddress = null;
+        boolean numericRegisters = false;
+        boolean binary = false;
+        boolean lowMemory = false;
+        boolean raw = false;
+        long rawAddress = 0;
+        long rawOffset = 0;
+        long rawLength = -1;
+        String mapFile = null;
+        boolean rv64 = false;
+        long start = 0;
+        long end = -1;
+        String symbol = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-j":
+                    case "--threads":
+                        threads = parsePositive(args, ++i);
+                        break;
+                    case "--batch":
+                        batch = true;
+                        break;
+                    case "--stats":
+                        printStats = true;
+                        break;
+                    case "--start":
+                        start = parseAddress(args, ++i);
+                        break;
+                    case "--end":
+                        end = parseAddress(args, ++i);
+                        break;
+                    case "--symbol":
+                        symbol = value(args, ++i);
+                        break;
+                    case "--binary":
+                        binary = true;
+                        break;
+                    case "--low-memory":
+                        lowMemory = true;
+                        break;
+                    case "--raw":
+                        raw = true;
+                        rawAddress = parseAddress(args, ++i);
+                        break;
+                    case "--offset":
+                        rawOffset = parseAddress(args, ++i);
+                        break;
+                    case "--length":
+                        rawLength = parseAddress(args, ++i);
+                        break;
+                    case "--map":
+                        mapFile = value(args, ++i);
+                        break;
+                    case "--rv64":
+                        rv64 = true;
+                        break;
+                    case "--numeric":
+                        numericRegisters = true;
+                        break;
+                    case "--server":
+                        serverAddress = value(args, ++i);
+                        break;
+                    case "--workers":
+                        workers = parsePositive(args, ++i);
+                        break;
+                    case "--cache":
+                        cacheDir = value(args, ++i);
+                        break;
+                    case "--cache-size":
+                        cacheSize = parsePositive(args, ++i);
+                        break;
+                    case "--incremental":
+                        previousElf = value(args, ++i);
+                        previousListing = value(args, ++i);
+                        break;
+                    case "--cfg":
+                        cfgFormat = value(args, ++i);
+                        if (!cfgFormat.equals("dot") && !cfgFormat.equals("binary")) {
+                            throw new IllegalArgumentException("Value of --cfg must be dot or binary");
+                        }
+                        break;
+                    case "-o":
+                    case "--output-dir":
+                        outputDir = value(args, ++i);
+                        break;
+                    default:
+                        files.add(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        if (serverAddress != null) {
+            runServer(serverAddress);
+            return;
+        }
+        DisassemblyCache cache = null;
+        if (cacheDir != null) {
+            try {
+                cache = new DisassemblyCache(Path.of(cacheDir), cacheSize << 20);
+            } catch (IOException e) {
+                System.out.println("Cache exception: " + e.getMessage());
+                return;
+            }
+        }
+        if (batch && previousElf != null) {
+            System.out.println("Incremental mode is not supported in batch mode");
+            return;
+        }
+        if (batch && cfgFormat != null) {
+            System.out.println("Control-flow graphs are not supported in batch mode");
+            return;
+        }
+        boolean range = start != 0 || end != -1 || symbol != null;
+        if (range && (batch || previousElf != null || cfgFormat != null || cache != null)) {
+            System.out.println("Address ranges are not supported with --batch, --incremental, --cfg or --cache");
+            return;
+        }
+        if (symbol != null && (start != 0 || end != -1)) {
+            System.out.println("Use either --symbol or --start and --end");
+            return;
+        }
+        if (binary && (batch || previousElf != null || cfgFormat != null || cache != null || range)) {
+            System.out.println("Binary listings are not supported with --batch, --incremental, --cfg, --cache or ranges");
+            return;
+        }
+        if (lowMemory && (batch || previousElf != null || cfgFormat != null || range)) {
+            System.out.println("Low-memory mode is not supported with --batch, --incremental, --cfg or ranges");
+            return;
+        }
+        if (!raw && (rawOffset != 0 || rawLength != -1 || mapFile != null || rv64)) {
+            System.out.println("Options --offset, --length, --map and --rv64 need --raw");
+            return;
+        }
+        if (raw && (batch || previousElf != null || cache != null)) {
+            System.out.println("Raw images are not supported with --batch, --incremental or --cache");
+            return;
+        }
+        boolean stdin = !batch && !files.isEmpty() && files.get(0).equals("-");
+        if (stdin && !raw) {
+            System.out.println("Standard input needs --raw");
+            return;
+        }
+        if (stdin && (cfgFormat != null || range)) {
+            System.out.println("Standard input is not supported with --cfg or ranges");
+            return;
+        }
+        DisassemblyStats stats = printStats ? new DisassemblyStats() : null;
+        if (batch) {
+            runBatch(files, outputDir, workers, cache, stats, numericRegisters);
+            return;
+        }
+        if (files.size() < 1) {
             System.out.println("Please write input and output files as arguments");
             return;
         }
-        try (ElfReader reader = new ElfReader(args[0])) {
-            BufferedWriter writer;
-            if (args.length >= 2) {
-                writer = new BufferedWriter(new FileWriter(args[1], StandardCharsets.UTF_8));
-            } else {
-                writer = new BufferedWriter(new OutputStreamWriter(System.out));
+        try (ElfReader reader = stdin
+                ? new ElfReader(new StreamDataReader(new FileInputStream(FileDescriptor.in).getChannel()))
+                : new ElfReader(files.get(0))) {
+            if (raw) {
+                long length = rawLength;
+                if (length == -1 && !stdin) {
+                    length = Files.size(Path.of(files.get(0))) - rawOffset;
+                    if (length < 0) {
+                        System.out.println("Offset is past the end of the input");
+                        return;
+                    }
+                }
+                reader.setRawImage(rv64, rawAddress, rawOffset, length,
+                        mapFile == null ? SymbolMap.EMPTY : SymbolMap.read(mapFile));
             }
-            try {
-                reader.disassemble(writer);
-            } catch(IOException e){
-                System.out.println("Output exception: " + e.getMessage());
-            } finally {
-                writer.close();
+            reader.setThreads(threads);
+            reader.setStats(stats);
+            reader.setNumericRegisters(numericRegisters);
+            // a stream can only go back a few megabytes, so labels are collected along the way
+            reader.setLowMemory(lowMemory || stdin);
+            String output = files.size() >= 2 ? files.get(1) : null;
+            if (cfgFormat != null) {
+                writeControlFlow(reader, cfgFormat, output);
+            } else if (previousElf != null) {
+                disassembleIncremental(reader, previousElf, previousListing, output);
+            } else if (cache != null) {
+                disassembleCached(reader, output, cache);
+            } else {
+                disassembleListing(reader, output, range, binary, start, end, symbol);
             }
         } catch(FileNotFoundException e){
             System.out.println("Input file not found");
+        } catch(NoSuchFileException e){
+            System.out.println("File not found: " + e.getFile());
+        } catch(IOException e){
+            System.out.println("Input exception: " + e.getMessage());
+        }
+        if (stats != null) {
+            stats.print(System.err);
+        }
+    }
+
+    private static void disassembleListing(ElfReader reader, String output, boolean range, boolean binary,
+                                           long start, long end, String symbol) throws IOException {
+        ByteOutput out;
+        if (output != null) {
+            out = new ByteOutput(FileChannel.open(Path.of(output), CREATE, TRUNCATE_EXISTING, WRITE));
+        } else {
+            out = new ByteOutput(new FileOutputStream(FileDescriptor.out));
+        }
+        try {
+            if (range) {
+                disassembleRange(reader, out, start, end, symbol);
+            } else if (binary) {
+                reader.disassembleBinary(out);
+            } else {
+                reader.disassemble(out);
+            }
         } catch(IOException e){
+            System.out.println("Output exception: " + e.getMessage());
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void disassembleRange(ElfReader reader, ByteOutput out, long start, long end, String symbol)
+            throws IOException {
+        if (symbol != null) {
+            start = reader.findSymbol(symbol);
+            if (start == ElfReader.NO_SYMBOL) {
+                System.out.println("Symbol not found: " + symbol);
+                return;
+            }
+            end = reader.getFunctionEnd(start);
+        }
+        reader.disassemble(out, start, end);
+    }
+
+    private static void disassembleIncremental(ElfReader reader, String previousElf, String previousListing,
+                                               String output) throws IOException {
+        Path listing = Path.of(previousListing);
+        if (output != null && Files.exists(Path.of(output)) && Files.isSameFile(Path.of(output), listing)) {
+            System.out.println("Output file must differ from the previous listing");
+            return;
+        }
+        try (ElfReader previous = new ElfReader(previousElf);
+             ByteOutput out = output != null
+                     ? new ByteOutput(FileChannel.open(Path.of(output), CREATE, TRUNCATE_EXISTING, WRITE))
+                     : new ByteOutput(new FileOutputStream(FileDescriptor.out))) {
+            IncrementalDisassembler.disassemble(previous, listing, reader, out);
+        }
+    }
+
+    private static void writeControlFlow(ElfReader reader, String format, String output) throws IOException {
+        try (ByteOutput out = output != null
+                ? new ByteOutput(FileChannel.open(Path.of(output), CREATE, TRUNCATE_EXISTING, WRITE))
+                : new ByteOutput(new FileOutputStream(FileDescriptor.out))) {
+            reader.buildControlFlow(format.equals("dot") ? new DotCfgWriter(out) : new BinaryCfgWriter(out));
+        }
+    }
+
+    private static void disassembleCached(ElfReader reader, String output, DisassemblyCache cache) throws IOException {
+        FileChannel channel;
+        if (output != null) {
+            channel = FileChannel.open(Path.of(output), CREATE, TRUNCATE_EXISTING, WRITE);
+        } else {
+            channel = new FileOutputStream(FileDescriptor.out).getChannel();
+        }
+        try (channel) {
+            cache.disassemble(reader, channel);
+        }
+    }
+
+    private static void runServer(String address) {
+        try (ServerSocketChannel channel = DisassemblyServer.open(address)) {
+            new DisassemblyServer(DisassemblyServer.DEFAULT_CACHE_ENTRIES, System.out).serve(channel);
+        } catch (IOException e) {
+            System.out.println("Server exception: " + e.getMessage());
+        }
+    }
+
+    private static void runBatch(List<String> inputs, String outputDir, int workers, DisassemblyCache cache,
+                                 DisassemblyStats stats, boolean numericRegisters) {
+        if (inputs.isEmpty()) {
+            System.out.println("Please write input files, directories or @lists as arguments");
+            return;
+        }
+        BatchDisassembler batch = new BatchDisassembler(outputDir == null ? null : Path.of(outputDir), System.out);
+        batch.setCache(cache);
+        batch.setStats(stats);
+        batch.setNumericRegisters(numericRegisters);
+        int failures;
+        try {
+            for (String input : inputs) {
+                batch.add(input);
+            }
+            failures = batch.run(workers);
+        } catch (IOException e) {
             System.out.println("Input exception: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        System.out.println("Disassembled " + (batch.size() - failures) + " of " + batch.size() + " files");
+        if (stats != null) {
+            stats.print(System.err);
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static long parseAddress(String[] args, int i) {
+        String value = value(args, i);
+        try {
+            return Long.parseUnsignedLong(value.startsWith("0x") ? value.substring(2) : value, 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Value of " + args[i - 1] + " must be a hex address");
+        }
+    }
+
+    private static int parsePositive(String[] args, int i) {
+        int result;
+        try {
+            result = Integer.parseInt(value(args, i));
+        } catch (NumberFormatException e) {
+            result = 0;
+        }
+        if (result < 1) {
+            throw new IllegalArgumentException("Value of " + args[i - 1] + " must be a positive integer");
         }
+        return result;
     }
 }
@@ -0,0 +1,182 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Random access reader over a memory-mapped file.
+ * Files larger than 2 GB are mapped in windows. Neighbouring windows overlap by 7 bytes,
+ * so any read of up to 8 bytes is served by a single window.
+ */
+public class MappedDataReader implements DataReader {
+    private static final int WINDOW_BITS = 30;
+    private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+    private static final int WINDOW_OVERLAP = 7;
+
+    private final RandomAccessFile file;
+    private final long size;
+    private final MappedByteBuffer[] windows;
+    private long position;
+
+    public MappedDataReader(String filename) throws IOException {
+        file = new RandomAccessFile(filename, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            size = channel.size();
+            windows = new MappedByteBuffer[(int) (size >>> WINDOW_BITS) + 1];
+            for (int i = 0; i < windows.length; i++) {
+                long start = (long) i << WINDOW_BITS;
+                long length = Math.min(size - start, WINDOW_MASK + 1 + WINDOW_OVERLAP);
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        enableBigEndian();
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int result = getByte(position);
+        position++;
+        return result;
+    }
+
+    @Override
+    public int readInt(int length) throws IOException {
+        if (length > 4) {
+            throw new IllegalArgumentException("Int cannot be more than 4 bytes");
+        }
+        return (int) readLong(length);
+    }
+
+    @Override
+    public long readLong(int length) throws IOException {
+        long result;
+        switch (length) {
+            case 1:
+                result = getByte(position);
+                break;
+            case 2:
+                result = getShort(position);
+                break;
+            case 4:
+                result = Integer.toUnsignedLong(getInt(position));
+                break;
+            case 8:
+                result = getLong(position);
+                break;
+            default:
+                if (length > 8) {
+                    throw new IllegalArgumentException("Long cannot be more than 8 bytes");
+                }
+                check(position, length);
+                result = 0;
+                boolean bigEndian = windows[0].order() == ByteOrder.BIG_ENDIAN;
+                for (int i = 0; i < length; i++) {
+                    int b = getByte(position + (bigEndian ? i : length - i - 1));
+                    result = (result << 8) | b;
+                }
+        }
+        position += length;
+        return result;
+    }
+
+    @Override
+    public void readFully(ByteBuffer target) throws IOException {
+        long end = position + Math.max(0, Math.min(target.remaining(), size - position));
+        while (position < end) {
+            MappedByteBuffer window = windows[(int) (position >>> WINDOW_BITS)];
+            int offset = (int) (position & WINDOW_MASK);
+            int length = (int) Math.min(end - position, window.limit() - offset);
+            target.put(target.position(), window, offset, length);
+            target.position(target.position() + length);
+            position += length;
+        }
+        if (target.hasRemaining()) {
+            throw new EOFException("Try to read after end file");
+        }
+    }
+
+    @Override
+    public void skipBytes(int count) {
+        position += count;
+    }
+
+    @Override
+    public void jump(long index) {
+        position = index;
+    }
+
+    @Override
+    public int getByte(long index) throws IOException {
+        check(index, 1);
+        return windows[(int) (index >>> WINDOW_BITS)].get((int) (index & WINDOW_MASK)) & 0xff;
+    }
+
+    @Override
+    public int getShort(long index) throws IOException {
+        check(index, 2);
+        return windows[(int) (index >>> WINDOW_BITS)].getShort((int) (index & WINDOW_MASK)) & 0xffff;
+    }
+
+    @Override
+    public int getInt(long index) throws IOException {
+        check(index, 4);
+        return windows[(int) (index >>> WINDOW_BITS)].getInt((int) (index & WINDOW_MASK));
+    }
+
+    @Override
+    public long getLong(long index) throws IOException {
+        check(index, 8);
+        return windows[(int) (index >>> WINDOW_BITS)].getLong((int) (index & WINDOW_MASK));
+    }
+
+    private void check(long index, int length) throws EOFException {
+        if (index < 0 || index > size - length) {
+            throw new EOFException("Try to read after end file");
+        }
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return true;
+    }
+
+    @Override
+    public void enableBigEndian() {
+        for (MappedByteBuffer window : windows) {
+            window.order(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    @Override
+    public void enableLittleEndian() {
+        for (MappedByteBuffer window : windows) {
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
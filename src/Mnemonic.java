@@ -0,0 +1,217 @@
+public enum Mnemonic {
+    UNKNOWN("UNKNOWN"),
+    LUI("lui"),
+    AUIPC("auipc"),
+    JAL("jal"),
+    JALR("jalr"),
+    BEQ("beq"),
+    BNE("bne"),
+    BLT("blt"),
+    BGE("bge"),
+    BLTU("bltu"),
+    BGEU("bgeu"),
+    LB("lb"),
+    LH("lh"),
+    LW("lw"),
+    LBU("lbu"),
+    LHU("lhu"),
+    SB("sb"),
+    SH("sh"),
+    SW("sw"),
+    ADDI("addi"),
+    SLTI("slti"),
+    SLTIU("sltiu"),
+    XORI("xori"),
+    ORI("ori"),
+    ANDI("andi"),
+    SLLI("slli"),
+    SRLI("srli"),
+    SRAI("srai"),
+    ADD("add"),
+    SUB("sub"),
+    SLL("sll"),
+    SLT("slt"),
+    SLTU("sltu"),
+    XOR("xor"),
+    SRL("srl"),
+    SRA("sra"),
+    OR("or"),
+    AND("and"),
+    MUL("mul"),
+    MULH("mulh"),
+    MULHSU("mulhsu"),
+    MULHU("mulhu"),
+    DIV("div"),
+    DIVU("divu"),
+    REM("rem"),
+    REMU("remu"),
+    FENCE("fence"),
+    FENCE_I("fence.i"),
+    ECALL("ecall"),
+    EBREAK("ebreak"),
+    CSRRW("csrrw"),
+    CSRRS("csrrs"),
+    CSRRC("csrrc"),
+    CSRRWI("csrrwi"),
+    CSRRSI("csrrsi"),
+    CSRRCI("csrrci"),
+    C_ADDI4SPN("c.addi4spn"),
+    C_LW("c.lw"),
+    C_SW("c.sw"),
+    C_NOP("c.nop"),
+    C_ADDI("c.addi"),
+    C_JAL("c.jal"),
+    C_LI("c.li"),
+    C_ADDI16SP("c.addi16sp"),
+    C_LUI("c.lui"),
+    C_SRLI("c.srli"),
+    C_SRAI("c.srai"),
+    C_ANDI("c.andi"),
+    C_SUB("c.sub"),
+    C_XOR("c.xor"),
+    C_OR("c.or"),
+    C_AND("c.and"),
+    C_J("c.j"),
+    C_BEQZ("c.beqz"),
+    C_BNEZ("c.bnez"),
+    C_SLLI("c.slli"),
+    C_LWSP("c.lwsp"),
+    C_JR("c.jr"),
+    C_MV("c.mv"),
+    C_EBREAK("c.ebreak"),
+    C_JALR("c.jalr"),
+    C_ADD("c.add"),
+    C_SWSP("c.swsp"),
+    LWU("lwu"),
+    LD("ld"),
+    SD("sd"),
+    ADDIW("addiw"),
+    SLLIW("slliw"),
+    SRLIW("srliw"),
+    SRAIW("sraiw"),
+    ADDW("addw"),
+    SUBW("subw"),
+    SLLW("sllw"),
+    SRLW("srlw"),
+    SRAW("sraw"),
+    MULW("mulw"),
+    DIVW("divw"),
+    DIVUW("divuw"),
+    REMW("remw"),
+    REMUW("remuw"),
+    C_LD("c.ld"),
+    C_SD("c.sd"),
+    C_LDSP("c.ldsp"),
+    C_SDSP("c.sdsp"),
+    C_ADDIW("c.addiw"),
+    C_SUBW("c.subw"),
+    C_ADDW("c.addw"),
+    LR_W("lr.w"),
+    SC_W("sc.w"),
+    AMOSWAP_W("amoswap.w"),
+    AMOADD_W("amoadd.w"),
+    AMOXOR_W("amoxor.w"),
+    AMOAND_W("amoand.w"),
+    AMOOR_W("amoor.w"),
+    AMOMIN_W("amomin.w"),
+    AMOMAX_W("amomax.w"),
+    AMOMINU_W("amominu.w"),
+    AMOMAXU_W("amomaxu.w"),
+    LR_D("lr.d"),
+    SC_D("sc.d"),
+    AMOSWAP_D("amoswap.d"),
+    AMOADD_D("amoadd.d"),
+    AMOXOR_D("amoxor.d"),
+    AMOAND_D("amoand.d"),
+    AMOOR_D("amoor.d"),
+    AMOMIN_D("amomin.d"),
+    AMOMAX_D("amomax.d"),
+    AMOMINU_D("amominu.d"),
+    AMOMAXU_D("amomaxu.d"),
+    FLW("flw"),
+    FSW("fsw"),
+    FMADD_S("fmadd.s"),
+    FMSUB_S("fmsub.s"),
+    FNMSUB_S("fnmsub.s"),
+    FNMADD_S("fnmadd.s"),
+    FADD_S("fadd.s"),
+    FSUB_S("fsub.s"),
+    FMUL_S("fmul.s"),
+    FDIV_S("fdiv.s"),
+    FSQRT_S("fsqrt.s"),
+    FSGNJ_S("fsgnj.s"),
+    FSGNJN_S("fsgnjn.s"),
+    FSGNJX_S("fsgnjx.s"),
+    FMIN_S("fmin.s"),
+    FMAX_S("fmax.s"),
+    FCVT_W_S("fcvt.w.s"),
+    FCVT_WU_S("fcvt.wu.s"),
+    FCVT_L_S("fcvt.l.s"),
+    FCVT_LU_S("fcvt.lu.s"),
+    FMV_X_W("fmv.x.w"),
+    FEQ_S("feq.s"),
+    FLT_S("flt.s"),
+    FLE_S("fle.s"),
+    FCLASS_S("fclass.s"),
+    FCVT_S_W("fcvt.s.w"),
+    FCVT_S_WU("fcvt.s.wu"),
+    FCVT_S_L("fcvt.s.l"),
+    FCVT_S_LU("fcvt.s.lu"),
+    FMV_W_X("fmv.w.x"),
+    FLD("fld"),
+    FSD("fsd"),
+    FMADD_D("fmadd.d"),
+    FMSUB_D("fmsub.d"),
+    FNMSUB_D("fnmsub.d"),
+    FNMADD_D("fnmadd.d"),
+    FADD_D("fadd.d"),
+    FSUB_D("fsub.d"),
+    FMUL_D("fmul.d"),
+    FDIV_D("fdiv.d"),
+    FSQRT_D("fsqrt.d"),
+    FSGNJ_D("fsgnj.d"),
+    FSGNJN_D("fsgnjn.d"),
+    FSGNJX_D("fsgnjx.d"),
+    FMIN_D("fmin.d"),
+    FMAX_D("fmax.d"),
+    FCVT_S_D("fcvt.s.d"),
+    FCVT_D_S("fcvt.d.s"),
+    FEQ_D("feq.d"),
+    FLT_D("flt.d"),
+    FLE_D("fle.d"),
+    FCLASS_D("fclass.d"),
+    FCVT_W_D("fcvt.w.d"),
+    FCVT_WU_D("fcvt.wu.d"),
+    FCVT_L_D("fcvt.l.d"),
+    FCVT_LU_D("fcvt.lu.d"),
+    FMV_X_D("fmv.x.d"),
+    FCVT_D_W("fcvt.d.w"),
+    FCVT_D_WU("fcvt.d.wu"),
+    FCVT_D_L("fcvt.d.l"),
+    FCVT_D_LU("fcvt.d.lu"),
+    FMV_D_X("fmv.d.x"),
+    C_FLW("c.flw"),
+    C_FSW("c.fsw"),
+    C_FLWSP("c.flwsp"),
+    C_FSWSP("c.fswsp"),
+    C_FLD("c.fld"),
+    C_FSD("c.fsd"),
+    C_FLDSP("c.fldsp"),
+    C_FSDSP("c.fsdsp");
+
+    private static final Mnemonic[] VALUES = values();
+
+    private final String name;
+
+    Mnemonic(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static Mnemonic byId(int id) {
+        return VALUES[id];
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Prebuilt ASCII text of operands. Register names come from a table per naming mode, and immediates
+ * of 12-bit fields, both signed and unsigned, are copied from one packed array of decimal strings.
+ * Other values fall back to {@link ByteOutput#putDecimal}. CSR numbers and rounding modes are
+ * looked up the same way, so no operand is formatted while rendering.
+ */
+public final class OperandTable {
+    /**
+     * ABI register names: {@code zero, ra, sp, ..., t6}.
+     */
+    public static final OperandTable ABI = new OperandTable(false);
+    /**
+     * Architectural register names {@code x0..x31} and {@code f0..f31}.
+     */
+    public static final OperandTable NUMERIC = new OperandTable(true);
+
+    /**
+     * Names of the rounding modes by the {@code rm} field, empty for reserved values.
+     */
+    private static final byte[][] ROUNDING_MODES = bytes("rne", "rtz", "rdn", "rup", "rmm", "", "", "dyn");
+    /**
+     * CSR names by number, {@code 0x} and three hex digits for CSRs without a standard name.
+     */
+    private static final byte[][] CSR_NAMES = new byte[1 << 12][];
+
+    private static final int MIN_IMMEDIATE = -2048;
+    private static final int MAX_IMMEDIATE = 4095;
+    private static final byte[] IMMEDIATE_TEXT;
+    /**
+     * Start of the text of {@code MIN_IMMEDIATE + i} at index {@code i}, the end at {@code i + 1}.
+     */
+    private static final int[] IMMEDIATE_OFFSETS = new int[MAX_IMMEDIATE - MIN_IMMEDIATE + 2];
+
+    static {
+        StringBuilder text = new StringBuilder();
+        for (int value = MIN_IMMEDIATE; value <= MAX_IMMEDIATE; value++) {
+            IMMEDIATE_OFFSETS[value - MIN_IMMEDIATE] = text.length();
+            text.append(value);
+        }
+        IMMEDIATE_OFFSETS[IMMEDIATE_OFFSETS.length - 1] = text.length();
+        IMMEDIATE_TEXT = text.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+        for (int csr = 0; csr < CSR_NAMES.length; csr++) {
+            CSR_NAMES[csr] = String.format("0x%03x", csr).getBytes(StandardCharsets.ISO_8859_1);
+        }
+        putCsr(0x001, "fflags", "frm", "fcsr");
+        putCsr(0xc00, "cycle", "time", "instret");
+        putCsr(0xc80, "cycleh", "timeh", "instreth");
+        for (int i = 3; i < 32; i++) {
+            putCsr(0xc00 + i, "hpmcounter" + i);
+            putCsr(0xc80 + i, "hpmcounter" + i + "h");
+            putCsr(0xb00 + i, "mhpmcounter" + i);
+            putCsr(0xb80 + i, "mhpmcounter" + i + "h");
+            putCsr(0x320 + i, "mhpmevent" + i);
+        }
+        putCsr(0x100, "sstatus");
+        putCsr(0x104, "sie", "stvec", "scounteren");
+        putCsr(0x140, "sscratch", "sepc", "scause", "stval", "sip");
+        putCsr(0x180, "satp");
+        putCsr(0xf11, "mvendorid", "marchid", "mimpid", "mhartid");
+        putCsr(0x300, "mstatus", "misa", "medeleg", "mideleg", "mie", "mtvec", "mcounteren");
+        putCsr(0x310, "mstatush");
+        putCsr(0x320, "mcountinhibit");
+        putCsr(0x340, "mscratch", "mepc", "mcause", "mtval", "mip");
+        for (int i = 0; i < 16; i++) {
+            putCsr(0x3a0 + i, "pmpcfg" + i);
+        }
+        for (int i = 0; i < 64; i++) {
+            putCsr(0x3b0 + i, "pmpaddr" + i);
+        }
+        putCsr(0xb00, "mcycle");
+        putCsr(0xb02, "minstret");
+        putCsr(0xb80, "mcycleh");
+        putCsr(0xb82, "minstreth");
+        putCsr(0x7a0, "tselect", "tdata1", "tdata2", "tdata3");
+        putCsr(0x7b0, "dcsr", "dpc", "dscratch0", "dscratch1");
+    }
+
+    private final byte[][] registers = new byte[32][];
+    private final byte[][] floatRegisters = new byte[32][];
+
+    private OperandTable(boolean numeric) {
+        for (int reg = 0; reg < registers.length; reg++) {
+            String name = numeric ? "x" + reg : abiName(reg);
+            registers[reg] = name.getBytes(StandardCharsets.ISO_8859_1);
+            name = numeric ? "f" + reg : floatAbiName(reg);
+            floatRegisters[reg] = name.getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    public static OperandTable of(boolean numeric) {
+        return numeric ? NUMERIC : ABI;
+    }
+
+    public byte[] getRegister(int reg) {
+        return registers[reg];
+    }
+
+    public String getRegisterName(int reg) {
+        return new String(registers[reg], StandardCharsets.ISO_8859_1);
+    }
+
+    public byte[] getFloatRegister(int reg) {
+        return floatRegisters[reg];
+    }
+
+    /**
+     * Name of the CSR with the 12-bit number.
+     */
+    public static byte[] getCsr(int csr) {
+        return CSR_NAMES[csr];
+    }
+
+    /**
+     * Name of the rounding mode in the 3-bit {@code rm} field.
+     */
+    public static byte[] getRoundingMode(int rm) {
+        return ROUNDING_MODES[rm];
+    }
+
+    /**
+     * Writes the value in decimal, from the table if it is in range.
+     */
+    public static ByteOutput putImmediate(ByteOutput out, long value) throws IOException {
+        if (value < MIN_IMMEDIATE || value > MAX_IMMEDIATE) {
+            return out.putDecimal(value);
+        }
+        int index = (int) value - MIN_IMMEDIATE;
+        int start = IMMEDIATE_OFFSETS[index];
+        return out.put(IMMEDIATE_TEXT, start, IMMEDIATE_OFFSETS[index + 1] - start);
+    }
+
+    private static void putCsr(int first, String... names) {
+        for (int i = 0; i < names.length; i++) {
+            CSR_NAMES[first + i] = names[i].getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static byte[][] bytes(String... names) {
+        byte[][] result = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = names[i].getBytes(StandardCharsets.ISO_8859_1);
+        }
+        return result;
+    }
+
+    private static String floatAbiName(int reg) {
+        if (reg <= 7) {
+            return "ft" + reg;
+        }
+        if (reg <= 9) {
+            return "fs" + (reg - 8);
+        }
+        if (reg <= 17) {
+            return "fa" + (reg - 10);
+        }
+        if (reg <= 27) {
+            return "fs" + (reg - 16);
+        }
+        return "ft" + (reg - 20);
+    }
+
+    private static String abiName(int reg) {
+        switch (reg) {
+            case 0:
+                return "zero";
+            case 1:
+                return "ra";
+            case 2:
+                return "sp";
+            case 3:
+                return "gp";
+            case 4:
+                return "tp";
+        }
+        if (reg <= 7) {
+            return "t" + (reg - 5);
+        }
+        if (reg <= 9) {
+            return "s" + (reg - 8);
+        }
+        if (reg <= 17) {
+            return "a" + (reg - 10);
+        }
+        if (reg <= 27) {
+            return "s" + (reg - 16);
+        }
+        return "t" + (reg - 25);
+    }
+}
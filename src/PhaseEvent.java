@@ -0,0 +1,18 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one phase of reading a file, such as {@code readSymTable} or {@code disassembleText}.
+ */
+@Name("riscv.Phase")
+@Label("Disassembler Phase")
+@Category("RISC-V Disassembler")
+@Description("Time spent in one phase of reading and disassembling an ELF file")
+@StackTrace(false)
+public class PhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    public String phase;
+}
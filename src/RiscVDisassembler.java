@@ -1,429 +1,1017 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
 
 public class RiscVDisassembler {
-    public static String disassemble(int addr, int command, Map<Integer, String> marks) {
-        int opcode = command & 0b1111111;
-        int funct3 = (command >>> 12) & 0b111;
-        int funct7 = (command >>> 25) & 0b1111111;
+    public static final int FORMAT_NONE = 0;
+    public static final int FORMAT_R = 1;
+    public static final int FORMAT_I = 2;
+    public static final int FORMAT_I_UNSIGNED = 3;
+    public static final int FORMAT_LOAD = 4;
+    public static final int FORMAT_STORE = 5;
+    public static final int FORMAT_B = 6;
+    public static final int FORMAT_U = 7;
+    public static final int FORMAT_J = 8;
+    public static final int FORMAT_SHIFT = 9;
+    public static final int FORMAT_FENCE = 10;
+    /**
+     * Not a format of decoded instructions: marks table entries whose mnemonic also depends on the rs2 field.
+     */
+    private static final int FORMAT_BY_RS2 = 11;
+    public static final int FORMAT_CR = 12;
+    public static final int FORMAT_CI = 13;
+    public static final int FORMAT_CB = 14;
+    public static final int FORMAT_CJ = 15;
+    public static final int FORMAT_CJR = 16;
+    public static final int FORMAT_SHIFT64 = 17;
+    public static final int FORMAT_FP_LOAD = 18;
+    public static final int FORMAT_FP_STORE = 19;
+    /**
+     * {@code fd, fs1, fs2}.
+     */
+    public static final int FORMAT_FP_R = 20;
+    /**
+     * {@code fd, fs1, fs2} and the rounding mode.
+     */
+    public static final int FORMAT_FP_R_RM = 21;
+    /**
+     * {@code fd, fs1, fs2, fs3} and the rounding mode.
+     */
+    public static final int FORMAT_FP_R4 = 22;
+    /**
+     * {@code fd, fs1} and the rounding mode.
+     */
+    public static final int FORMAT_FP_UNARY = 23;
+    /**
+     * {@code rd, fs1} and the rounding mode.
+     */
+    public static final int FORMAT_FP_TO_INT = 24;
+    /**
+     * {@code rd, fs1}.
+     */
+    public static final int FORMAT_FP_MOVE_TO_INT = 25;
+    /**
+     * {@code fd, rs1} and the rounding mode.
+     */
+    public static final int FORMAT_INT_TO_FP = 26;
+    /**
+     * {@code fd, rs1}.
+     */
+    public static final int FORMAT_FP_MOVE_FROM_INT = 27;
+    /**
+     * {@code rd, fs1, fs2}.
+     */
+    public static final int FORMAT_FP_COMPARE = 28;
+    /**
+     * {@code rd, rs2, (rs1)} with the memory ordering bits.
+     */
+    public static final int FORMAT_AMO = 29;
+    /**
+     * {@code rd, (rs1)} with the memory ordering bits.
+     */
+    public static final int FORMAT_LR = 30;
+    /**
+     * {@code rd, csr, rs1}.
+     */
+    public static final int FORMAT_CSR = 31;
+    /**
+     * {@code rd, csr, uimm} with the 5-bit immediate in rs1.
+     */
+    public static final int FORMAT_CSRI = 32;
+
+    private static final byte[] SEPARATOR = {',', ' '};
+    private static final byte[][] MNEMONIC_NAMES = new byte[Mnemonic.values().length][];
+    private static final Mnemonic[] COMPRESSED_ARITHMETIC = {Mnemonic.C_SUB, Mnemonic.C_XOR, Mnemonic.C_OR, Mnemonic.C_AND};
+    private static final Mnemonic[] COMPRESSED_ARITHMETIC_WORD = {Mnemonic.C_SUBW, Mnemonic.C_ADDW, Mnemonic.UNKNOWN, Mnemonic.UNKNOWN};
+    /**
+     * Suffixes of atomic instructions by {@code aq << 1 | rl}.
+     */
+    private static final byte[][] ORDERING_SUFFIXES = {{}, {'.', 'r', 'l'}, {'.', 'a', 'q'}, {'.', 'a', 'q', 'r', 'l'}};
+
+    static {
+        for (Mnemonic mnemonic : Mnemonic.values()) {
+            MNEMONIC_NAMES[mnemonic.ordinal()] = mnemonic.getName().getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Decoders for RV32 and RV64. Each has its own decode table, so decoding does not branch on the width.
+     */
+    public static final RiscVDisassembler RV32 = new RiscVDisassembler(false);
+    public static final RiscVDisassembler RV64 = new RiscVDisassembler(true);
+
+    /**
+     * Returned by {@link #getTarget} for instructions without a target. Targets are always even.
+     */
+    public static final long NO_TARGET = -1;
+
+    private final boolean rv64;
+    private final long addressMask;
+
+    /**
+     * Decode table indexed by opcode and funct3: {@code opcode << 3 | funct3}.
+     * Each entry packs the mnemonic id (bits 0-7) and the format (bits 8-15).
+     * A non-zero value in bits 16-31 is an offset (plus one) of a 128-entry block
+     * in {@link #funct7Table}, which is indexed by funct7.
+     * An entry with {@link #FORMAT_BY_RS2} holds in bits 0-7 the number of a 32-entry block
+     * in {@link #rs2Table}, which is indexed by rs2 and holds final entries.
+     */
+    private final int[] decodeTable = new int[128 << 3];
+    private int[] funct7Table = new int[32 << 7];
+    private int funct7TableSize = 0;
+    private int[] rs2Table = new int[16 << 5];
+    private int rs2TableSize = 0;
+
+    private RiscVDisassembler(boolean rv64) {
+        this.rv64 = rv64;
+        this.addressMask = rv64 ? -1L : 0xffffffffL;
+
+        put(0b0110111, Mnemonic.LUI, FORMAT_U);
+        put(0b0010111, Mnemonic.AUIPC, FORMAT_U);
+        put(0b1101111, Mnemonic.JAL, FORMAT_J);
+        put(0b1100111, Mnemonic.JALR, FORMAT_I_UNSIGNED);
+
+        put(0b1100011, Mnemonic.UNKNOWN, FORMAT_B);
+        put(0b1100011, 0b000, Mnemonic.BEQ, FORMAT_B);
+        put(0b1100011, 0b001, Mnemonic.BNE, FORMAT_B);
+        put(0b1100011, 0b100, Mnemonic.BLT, FORMAT_B);
+        put(0b1100011, 0b101, Mnemonic.BGE, FORMAT_B);
+        put(0b1100011, 0b110, Mnemonic.BLTU, FORMAT_B);
+        put(0b1100011, 0b111, Mnemonic.BGEU, FORMAT_B);
+
+        put(0b0000011, Mnemonic.UNKNOWN, FORMAT_LOAD);
+        put(0b0000011, 0b000, Mnemonic.LB, FORMAT_LOAD);
+        put(0b0000011, 0b001, Mnemonic.LH, FORMAT_LOAD);
+        put(0b0000011, 0b010, Mnemonic.LW, FORMAT_LOAD);
+        put(0b0000011, 0b100, Mnemonic.LBU, FORMAT_LOAD);
+        put(0b0000011, 0b101, Mnemonic.LHU, FORMAT_LOAD);
+
+        put(0b0100011, Mnemonic.UNKNOWN, FORMAT_STORE);
+        put(0b0100011, 0b000, Mnemonic.SB, FORMAT_STORE);
+        put(0b0100011, 0b001, Mnemonic.SH, FORMAT_STORE);
+        put(0b0100011, 0b010, Mnemonic.SW, FORMAT_STORE);
+
+        put(0b0010011, 0b000, Mnemonic.ADDI, FORMAT_I);
+        put(0b0010011, 0b010, Mnemonic.SLTI, FORMAT_I);
+        put(0b0010011, 0b011, Mnemonic.SLTIU, FORMAT_I_UNSIGNED);
+        put(0b0010011, 0b100, Mnemonic.XORI, FORMAT_I);
+        put(0b0010011, 0b110, Mnemonic.ORI, FORMAT_I);
+        put(0b0010011, 0b111, Mnemonic.ANDI, FORMAT_I);
+
+        Mnemonic[] base = {Mnemonic.ADD, Mnemonic.SLL, Mnemonic.SLT, Mnemonic.SLTU,
+                Mnemonic.XOR, Mnemonic.SRL, Mnemonic.OR, Mnemonic.AND};
+        Mnemonic[] multiply = {Mnemonic.MUL, Mnemonic.MULH, Mnemonic.MULHSU, Mnemonic.MULHU,
+                Mnemonic.DIV, Mnemonic.DIVU, Mnemonic.REM, Mnemonic.REMU};
+        for (int funct3 = 0; funct3 < 8; funct3++) {
+            put(0b0110011, funct3, 0b0000000, base[funct3], FORMAT_R);
+            put(0b0110011, funct3, 0b0100000, Mnemonic.UNKNOWN, FORMAT_R);
+            put(0b0110011, funct3, 0b0000001, multiply[funct3], FORMAT_R);
+        }
+        put(0b0110011, 0b000, 0b0100000, Mnemonic.SUB, FORMAT_R);
+        put(0b0110011, 0b101, 0b0100000, Mnemonic.SRA, FORMAT_R);
+
+        put(0b0001111, 0b000, Mnemonic.FENCE, FORMAT_FENCE);
+        put(0b0001111, 0b001, Mnemonic.FENCE_I, FORMAT_NONE);
+
+        put(0b1110011, Mnemonic.UNKNOWN, FORMAT_R);
+        put(0b1110011, 0b000, 0b0000000, group(FORMAT_NONE, Mnemonic.ECALL, Mnemonic.EBREAK));
+        put(0b1110011, 0b001, Mnemonic.CSRRW, FORMAT_CSR);
+        put(0b1110011, 0b010, Mnemonic.CSRRS, FORMAT_CSR);
+        put(0b1110011, 0b011, Mnemonic.CSRRC, FORMAT_CSR);
+        put(0b1110011, 0b101, Mnemonic.CSRRWI, FORMAT_CSRI);
+        put(0b1110011, 0b110, Mnemonic.CSRRSI, FORMAT_CSRI);
+        put(0b1110011, 0b111, Mnemonic.CSRRCI, FORMAT_CSRI);
+
+        putAtomic(0b010, Mnemonic.LR_W, Mnemonic.SC_W, Mnemonic.AMOSWAP_W, Mnemonic.AMOADD_W, Mnemonic.AMOXOR_W,
+                Mnemonic.AMOAND_W, Mnemonic.AMOOR_W, Mnemonic.AMOMIN_W, Mnemonic.AMOMAX_W, Mnemonic.AMOMINU_W,
+                Mnemonic.AMOMAXU_W);
+        putFloat(0b00, new Mnemonic[]{Mnemonic.FLW, Mnemonic.FSW,
+                        Mnemonic.FMADD_S, Mnemonic.FMSUB_S, Mnemonic.FNMSUB_S, Mnemonic.FNMADD_S,
+                        Mnemonic.FADD_S, Mnemonic.FSUB_S, Mnemonic.FMUL_S, Mnemonic.FDIV_S, Mnemonic.FSQRT_S,
+                        Mnemonic.FSGNJ_S, Mnemonic.FSGNJN_S, Mnemonic.FSGNJX_S, Mnemonic.FMIN_S, Mnemonic.FMAX_S,
+                        Mnemonic.FLE_S, Mnemonic.FLT_S, Mnemonic.FEQ_S, Mnemonic.FCLASS_S},
+                new Mnemonic[]{Mnemonic.FCVT_W_S, Mnemonic.FCVT_WU_S, Mnemonic.FCVT_L_S, Mnemonic.FCVT_LU_S},
+                new Mnemonic[]{Mnemonic.FCVT_S_W, Mnemonic.FCVT_S_WU, Mnemonic.FCVT_S_L, Mnemonic.FCVT_S_LU},
+                1, Mnemonic.FCVT_S_D, Mnemonic.FMV_X_W, Mnemonic.FMV_W_X);
+        putFloat(0b01, new Mnemonic[]{Mnemonic.FLD, Mnemonic.FSD,
+                        Mnemonic.FMADD_D, Mnemonic.FMSUB_D, Mnemonic.FNMSUB_D, Mnemonic.FNMADD_D,
+                        Mnemonic.FADD_D, Mnemonic.FSUB_D, Mnemonic.FMUL_D, Mnemonic.FDIV_D, Mnemonic.FSQRT_D,
+                        Mnemonic.FSGNJ_D, Mnemonic.FSGNJN_D, Mnemonic.FSGNJX_D, Mnemonic.FMIN_D, Mnemonic.FMAX_D,
+                        Mnemonic.FLE_D, Mnemonic.FLT_D, Mnemonic.FEQ_D, Mnemonic.FCLASS_D},
+                new Mnemonic[]{Mnemonic.FCVT_W_D, Mnemonic.FCVT_WU_D, Mnemonic.FCVT_L_D, Mnemonic.FCVT_LU_D},
+                new Mnemonic[]{Mnemonic.FCVT_D_W, Mnemonic.FCVT_D_WU, Mnemonic.FCVT_D_L, Mnemonic.FCVT_D_LU},
+                0, Mnemonic.FCVT_D_S, rv64 ? Mnemonic.FMV_X_D : null, Mnemonic.FMV_D_X);
+
+        if (rv64) {
+            putRV64();
+        } else {
+            put(0b0010011, 0b001, 0b0000000, Mnemonic.SLLI, FORMAT_SHIFT);
+            put(0b0010011, 0b101, 0b0000000, Mnemonic.SRLI, FORMAT_SHIFT);
+            put(0b0010011, 0b101, 0b0100000, Mnemonic.SRAI, FORMAT_SHIFT);
+        }
+        funct7Table = Arrays.copyOf(funct7Table, funct7TableSize);
+        rs2Table = Arrays.copyOf(rs2Table, rs2TableSize);
+    }
+
+    /**
+     * Puts the A extension for the width in funct3: {@code lr, sc} and the AMOs in the order of funct5 below.
+     * The low two bits of funct7 are the ordering bits {@code aq} and {@code rl}.
+     */
+    private void putAtomic(int funct3, Mnemonic... ops) {
+        int[] funct5 = {0b00010, 0b00011, 0b00001, 0b00000, 0b00100, 0b01100, 0b01000,
+                0b10000, 0b10100, 0b11000, 0b11100};
+        int lr = group(FORMAT_LR, ops[0]);
+        for (int ordering = 0; ordering < 4; ordering++) {
+            put(0b0101111, funct3, funct5[0] << 2 | ordering, lr);
+            for (int i = 1; i < funct5.length; i++) {
+                put(0b0101111, funct3, funct5[i] << 2 | ordering, ops[i], FORMAT_AMO);
+            }
+        }
+    }
+
+    /**
+     * Puts the F or D extension for the format in the low two bits of funct7. {@code ops} lists the load, store,
+     * fused multiply-adds, arithmetic, {@code fsgnj*}, {@code fmin}, {@code fmax}, {@code fle}, {@code flt},
+     * {@code feq} and {@code fclass}. Conversions to and from integers are listed by rs2: {@code w, wu, l, lu}.
+     * Rounding modes 5 and 6 are reserved.
+     */
+    private void putFloat(int fmt, Mnemonic[] ops, Mnemonic[] toInt, Mnemonic[] fromInt,
+                          int convertRs2, Mnemonic convert, Mnemonic moveToInt, Mnemonic moveFromInt) {
+        if (!rv64) {
+            toInt = Arrays.copyOf(toInt, 2);
+            fromInt = Arrays.copyOf(fromInt, 2);
+        }
+        put(0b0000111, 0b010 + fmt, ops[0], FORMAT_FP_LOAD);
+        put(0b0100111, 0b010 + fmt, ops[1], FORMAT_FP_STORE);
+
+        Mnemonic[] byRs2 = new Mnemonic[convertRs2 + 1];
+        byRs2[convertRs2] = convert;
+        int convertFloat = group(FORMAT_FP_UNARY, byRs2);
+        int sqrt = group(FORMAT_FP_UNARY, ops[10]);
+        int convertToInt = group(FORMAT_FP_TO_INT, toInt);
+        int convertFromInt = group(FORMAT_INT_TO_FP, fromInt);
+        for (int rm = 0; rm < 8; rm++) {
+            if (rm == 5 || rm == 6) {
+                continue;
+            }
+            for (int rs3 = 0; rs3 < 32; rs3++) {
+                put(0b1000011, rm, rs3 << 2 | fmt, ops[2], FORMAT_FP_R4);
+                put(0b1000111, rm, rs3 << 2 | fmt, ops[3], FORMAT_FP_R4);
+                put(0b1001011, rm, rs3 << 2 | fmt, ops[4], FORMAT_FP_R4);
+                put(0b1001111, rm, rs3 << 2 | fmt, ops[5], FORMAT_FP_R4);
+            }
+            for (int funct5 = 0; funct5 < 4; funct5++) {
+                put(0b1010011, rm, funct5 << 2 | fmt, ops[6 + funct5], FORMAT_FP_R_RM);
+            }
+            put(0b1010011, rm, 0b01011 << 2 | fmt, sqrt);
+            put(0b1010011, rm, 0b01000 << 2 | fmt, convertFloat);
+            put(0b1010011, rm, 0b11000 << 2 | fmt, convertToInt);
+            put(0b1010011, rm, 0b11010 << 2 | fmt, convertFromInt);
+        }
+        for (int funct3 = 0; funct3 < 3; funct3++) {
+            put(0b1010011, funct3, 0b00100 << 2 | fmt, ops[11 + funct3], FORMAT_FP_R);
+            put(0b1010011, funct3, 0b10100 << 2 | fmt, ops[16 + funct3], FORMAT_FP_COMPARE);
+        }
+        put(0b1010011, 0b000, 0b00101 << 2 | fmt, ops[14], FORMAT_FP_R);
+        put(0b1010011, 0b001, 0b00101 << 2 | fmt, ops[15], FORMAT_FP_R);
+        put(0b1010011, 0b001, 0b11100 << 2 | fmt, group(FORMAT_FP_MOVE_TO_INT, ops[19]));
+        if (moveToInt != null) {
+            put(0b1010011, 0b000, 0b11100 << 2 | fmt, group(FORMAT_FP_MOVE_TO_INT, moveToInt));
+            put(0b1010011, 0b000, 0b11110 << 2 | fmt, group(FORMAT_FP_MOVE_FROM_INT, moveFromInt));
+        }
+    }
+
+    private void putRV64() {
+        put(0b0000011, 0b011, Mnemonic.LD, FORMAT_LOAD);
+        put(0b0000011, 0b110, Mnemonic.LWU, FORMAT_LOAD);
+        put(0b0100011, 0b011, Mnemonic.SD, FORMAT_STORE);
+
+        // Shift amount takes 6 bits, so its high bit is the low bit of funct7
+        for (int shamt5 = 0; shamt5 < 2; shamt5++) {
+            put(0b0010011, 0b001, 0b0000000 | shamt5, Mnemonic.SLLI, FORMAT_SHIFT64);
+            put(0b0010011, 0b101, 0b0000000 | shamt5, Mnemonic.SRLI, FORMAT_SHIFT64);
+            put(0b0010011, 0b101, 0b0100000 | shamt5, Mnemonic.SRAI, FORMAT_SHIFT64);
+        }
+
+        put(0b0011011, 0b000, Mnemonic.ADDIW, FORMAT_I);
+        put(0b0011011, 0b001, 0b0000000, Mnemonic.SLLIW, FORMAT_SHIFT);
+        put(0b0011011, 0b101, 0b0000000, Mnemonic.SRLIW, FORMAT_SHIFT);
+        put(0b0011011, 0b101, 0b0100000, Mnemonic.SRAIW, FORMAT_SHIFT);
+
+        put(0b0111011, 0b000, 0b0000000, Mnemonic.ADDW, FORMAT_R);
+        put(0b0111011, 0b000, 0b0100000, Mnemonic.SUBW, FORMAT_R);
+        put(0b0111011, 0b001, 0b0000000, Mnemonic.SLLW, FORMAT_R);
+        put(0b0111011, 0b101, 0b0000000, Mnemonic.SRLW, FORMAT_R);
+        put(0b0111011, 0b101, 0b0100000, Mnemonic.SRAW, FORMAT_R);
+        put(0b0111011, 0b000, 0b0000001, Mnemonic.MULW, FORMAT_R);
+        put(0b0111011, 0b100, 0b0000001, Mnemonic.DIVW, FORMAT_R);
+        put(0b0111011, 0b101, 0b0000001, Mnemonic.DIVUW, FORMAT_R);
+        put(0b0111011, 0b110, 0b0000001, Mnemonic.REMW, FORMAT_R);
+        put(0b0111011, 0b111, 0b0000001, Mnemonic.REMUW, FORMAT_R);
+
+        putAtomic(0b011, Mnemonic.LR_D, Mnemonic.SC_D, Mnemonic.AMOSWAP_D, Mnemonic.AMOADD_D, Mnemonic.AMOXOR_D,
+                Mnemonic.AMOAND_D, Mnemonic.AMOOR_D, Mnemonic.AMOMIN_D, Mnemonic.AMOMAX_D, Mnemonic.AMOMINU_D,
+                Mnemonic.AMOMAXU_D);
+    }
+
+    private void put(int opcode, Mnemonic mnemonic, int format) {
+        for (int funct3 = 0; funct3 < 8; funct3++) {
+            put(opcode, funct3, mnemonic, format);
+        }
+    }
+
+    private void put(int opcode, int funct3, Mnemonic mnemonic, int format) {
+        decodeTable[opcode << 3 | funct3] = pack(mnemonic, format);
+    }
 
-        String commandName = "UNKNOWN";
-        String args = "";
-        switch (opcode) {
-            case 0b0110111:
-                commandName = "lui";
-                args = disassembleUTypeCommand(command);
+    private void put(int opcode, int funct3, int funct7, Mnemonic mnemonic, int format) {
+        put(opcode, funct3, funct7, pack(mnemonic, format));
+    }
+
+    private void put(int opcode, int funct3, int funct7, int entry) {
+        int index = opcode << 3 | funct3;
+        if (decodeTable[index] >>> 16 == 0) {
+            if (funct7TableSize == funct7Table.length) {
+                funct7Table = Arrays.copyOf(funct7Table, 2 * funct7TableSize);
+            }
+            decodeTable[index] = (funct7TableSize + 1) << 16;
+            funct7TableSize += 128;
+        }
+        funct7Table[(decodeTable[index] >>> 16) - 1 + funct7] = entry;
+    }
+
+    /**
+     * Adds a block of {@link #rs2Table} with the mnemonics by rs2, null for reserved values,
+     * and returns the entry that refers to it.
+     */
+    private int group(int format, Mnemonic... byRs2) {
+        if (rs2TableSize == rs2Table.length) {
+            rs2Table = Arrays.copyOf(rs2Table, 2 * rs2TableSize);
+        }
+        for (int rs2 = 0; rs2 < byRs2.length; rs2++) {
+            if (byRs2[rs2] != null) {
+                rs2Table[rs2TableSize + rs2] = pack(byRs2[rs2], format);
+            }
+        }
+        int entry = (rs2TableSize >>> 5) | FORMAT_BY_RS2 << 8;
+        rs2TableSize += 32;
+        return entry;
+    }
+
+    private static int pack(Mnemonic mnemonic, int format) {
+        return mnemonic.ordinal() | format << 8;
+    }
+
+    public boolean isRV64() {
+        return rv64;
+    }
+
+    /**
+     * Returns the mnemonic id (bits 0-7) and the format (bits 8-15) of the command.
+     */
+    public int decode(int command) {
+        int entry = decodeTable[(command & 0b1111111) << 3 | (command >>> 12) & 0b111];
+        if (entry >>> 16 != 0) {
+            entry = funct7Table[(entry >>> 16) - 1 + (command >>> 25)];
+        }
+        if ((entry >>> 8) == FORMAT_BY_RS2) {
+            entry = rs2Table[(entry & 0xff) << 5 | (command >>> 20) & 0b11111];
+        }
+        return entry;
+    }
+
+    public static Mnemonic getMnemonic(int decoded) {
+        return Mnemonic.byId(decoded & 0xff);
+    }
+
+    public static int getFormat(int decoded) {
+        return (decoded >>> 8) & 0xff;
+    }
+
+    /**
+     * Decodes the command into {@code out} without creating objects.
+     */
+    public void decode(long addr, int command, DecodedInstruction out) {
+        int decoded = decode(command);
+        int format = getFormat(decoded);
+        int rd = (command >>> 7) & 0b11111;
+        int rs1 = (command >>> 15) & 0b11111;
+        int rs2 = (command >>> 20) & 0b11111;
+        int imm = 0;
+
+        switch (format) {
+            case FORMAT_I:
+            case FORMAT_I_UNSIGNED:
+            case FORMAT_LOAD:
+            case FORMAT_FP_LOAD:
+                imm = command >> 20;
                 break;
-            case 0b0010111:
-                commandName = "auipc";
-                args = disassembleUTypeCommand(command);
+            case FORMAT_CSR:
+            case FORMAT_CSRI:
+                imm = command >>> 20;
                 break;
-            case 0b1101111:
-                commandName = "jal";
-                args = disassembleJTypeCommand(command);
+            case FORMAT_STORE:
+            case FORMAT_FP_STORE:
+                imm = (command >> 25) << 5 | rd;
+                break;
+            case FORMAT_B:
+                imm = getBTypeOffset(command);
+                break;
+            case FORMAT_U:
+                imm = command & 0xfffff000;
                 break;
-            case 0b1100111:
-                commandName = "jalr";
-                args = disassembleITypeCommand(command, false);
+            case FORMAT_J:
+                imm = getJTypeOffset(command);
                 break;
+            case FORMAT_SHIFT:
+                imm = rs2;
+                break;
+            case FORMAT_SHIFT64:
+                imm = (command >>> 20) & 0b111111;
+                break;
+            case FORMAT_FENCE:
+                imm = (command >>> 20) & 0b11111111;
+                break;
+            case FORMAT_FP_R_RM:
+            case FORMAT_FP_UNARY:
+            case FORMAT_FP_TO_INT:
+            case FORMAT_INT_TO_FP:
+                imm = (command >>> 12) & 0b111;
+                break;
+            case FORMAT_FP_R4:
+                imm = (command >>> 27) << 3 | (command >>> 12) & 0b111;
+                break;
+            case FORMAT_AMO:
+            case FORMAT_LR:
+                imm = (command >>> 25) & 0b11;
+                break;
+        }
+        out.set(addr, command, 4, getMnemonic(decoded), format, rd, rs1, rs2, imm);
+        if (format == FORMAT_B || format == FORMAT_J) {
+            out.setTarget((addr + imm) & addressMask);
+        }
+    }
+
+    /**
+     * Returns the target of a branch or {@code jal} without decoding anything else, or {@link #NO_TARGET}.
+     * Like {@link #decode(long, int, DecodedInstruction)}, it gives a target to reserved branch encodings too.
+     */
+    public long getTarget(long addr, int command) {
+        switch (command & 0b1111111) {
+            case 0b1101111:
+                return (addr + getJTypeOffset(command)) & addressMask;
             case 0b1100011:
-                switch (funct3) {
-                    case 0b000:
-                        commandName = "beq";
-                        break;
-                    case 0b001:
-                        commandName = "bne";
-                        break;
-                    case 0b100:
-                        commandName = "blt";
-                        break;
-                    case 0b101:
-                        commandName = "bge";
-                        break;
-                    case 0b110:
-                        commandName = "bltu";
-                        break;
-                    case 0b111:
-                        commandName = "bgeu";
-                        break;
+                return (addr + getBTypeOffset(command)) & addressMask;
+            default:
+                return NO_TARGET;
+        }
+    }
+
+    /**
+     * Same as {@link #getTarget} for a 16-bit parcel: {@code c.j}, {@code c.jal}, {@code c.beqz} and {@code c.bnez}.
+     */
+    public long getCompressedTarget(long addr, int parcel) {
+        switch ((parcel & 0b11) << 3 | (parcel >>> 13)) {
+            case 0b01001:
+                return rv64 ? NO_TARGET : (addr + getCompressedJumpOffset(parcel)) & addressMask;
+            case 0b01101:
+                return (addr + getCompressedJumpOffset(parcel)) & addressMask;
+            case 0b01110:
+            case 0b01111:
+                return (addr + getCompressedBranchOffset(parcel)) & addressMask;
+            default:
+                return NO_TARGET;
+        }
+    }
+
+    /**
+     * Returns true if the parcel is the first half of a 32-bit instruction.
+     */
+    public static boolean isFullSize(int parcel) {
+        return (parcel & 0b11) == 0b11;
+    }
+
+    /**
+     * Decodes a 16-bit instruction of the C extension into {@code out} without creating objects.
+     */
+    public void decodeCompressed(long addr, int parcel, DecodedInstruction out) {
+        int rd = (parcel >>> 7) & 0b11111;
+        int rs2 = (parcel >>> 2) & 0b11111;
+        int rdPrime = 8 + ((parcel >>> 2) & 0b111);
+        int rs1Prime = 8 + ((parcel >>> 7) & 0b111);
+        int ciImm = (parcel >>> 2) & 0b11111 | -((parcel >>> 12) & 1) << 5;
+        int shamt = (parcel >>> 7) & 0b100000 | (parcel >>> 2) & 0b11111;
+
+        Mnemonic mnemonic = Mnemonic.UNKNOWN;
+        int format = FORMAT_NONE;
+        int rs1 = 0;
+        int imm = 0;
+        switch ((parcel & 0b11) << 3 | (parcel >>> 13)) {
+            case 0b00000:
+                imm = (parcel >>> 7) & 0b110000 | (parcel >>> 1) & 0b1111000000
+                        | (parcel >>> 4) & 0b100 | (parcel >>> 2) & 0b1000;
+                if (imm != 0) {
+                    mnemonic = Mnemonic.C_ADDI4SPN;
+                    format = FORMAT_I;
+                    rd = rdPrime;
+                    rs1 = 2;
                 }
-                args = disassembleBTypeCommand(command);
                 break;
-            case 0b0000011:
-                switch (funct3) {
-                    case 0b000:
-                        commandName = "lb";
-                        break;
-                    case 0b001:
-                        commandName = "lh";
-                        break;
-                    case 0b010:
-                        commandName = "lw";
-                        break;
-                    case 0b100:
-                        commandName = "lbu";
-                        break;
-                    case 0b101:
-                        commandName = "lhu";
-                        break;
+            case 0b00001:
+                mnemonic = Mnemonic.C_FLD;
+                format = FORMAT_FP_LOAD;
+                rd = rdPrime;
+                rs1 = rs1Prime;
+                imm = getCompressedDoubleOffset(parcel);
+                break;
+            case 0b00010:
+                mnemonic = Mnemonic.C_LW;
+                format = FORMAT_LOAD;
+                rd = rdPrime;
+                rs1 = rs1Prime;
+                imm = getCompressedWordOffset(parcel);
+                break;
+            case 0b00011:
+                if (rv64) {
+                    mnemonic = Mnemonic.C_LD;
+                    format = FORMAT_LOAD;
+                    rd = rdPrime;
+                    rs1 = rs1Prime;
+                    imm = getCompressedDoubleOffset(parcel);
+                } else {
+                    mnemonic = Mnemonic.C_FLW;
+                    format = FORMAT_FP_LOAD;
+                    rd = rdPrime;
+                    rs1 = rs1Prime;
+                    imm = getCompressedWordOffset(parcel);
                 }
-                args = disassembleITypeCommand(command, false, true);
                 break;
-            case 0b0100011:
-                switch (funct3) {
-                    case 0b000:
-                        commandName = "sb";
-                        break;
-                    case 0b001:
-                        commandName = "sh";
-                        break;
-                    case 0b010:
-                        commandName = "sw";
-                        break;
+            case 0b00101:
+                mnemonic = Mnemonic.C_FSD;
+                format = FORMAT_FP_STORE;
+                rs1 = rs1Prime;
+                rs2 = rdPrime;
+                imm = getCompressedDoubleOffset(parcel);
+                break;
+            case 0b00110:
+                mnemonic = Mnemonic.C_SW;
+                format = FORMAT_STORE;
+                rs1 = rs1Prime;
+                rs2 = rdPrime;
+                imm = getCompressedWordOffset(parcel);
+                break;
+            case 0b00111:
+                if (rv64) {
+                    mnemonic = Mnemonic.C_SD;
+                    format = FORMAT_STORE;
+                    rs1 = rs1Prime;
+                    rs2 = rdPrime;
+                    imm = getCompressedDoubleOffset(parcel);
+                } else {
+                    mnemonic = Mnemonic.C_FSW;
+                    format = FORMAT_FP_STORE;
+                    rs1 = rs1Prime;
+                    rs2 = rdPrime;
+                    imm = getCompressedWordOffset(parcel);
                 }
-                args = disassembleSTypeCommand(command, true);
                 break;
-            case 0b0010011:
-                switch (funct3) {
-                    case 0b000:
-                        commandName = "addi";
-                        args = disassembleITypeCommand(command, true);
-                        break;
-                    case 0b010:
-                        commandName = "slti";
-                        args = disassembleITypeCommand(command, true);
-                        break;
-                    case 0b011:
-                        commandName = "sltiu";
-                        args = disassembleITypeCommand(command, false);
-                        break;
-                    case 0b100:
-                        commandName = "xori";
-                        args = disassembleITypeCommand(command, true);
-                        break;
-                    case 0b110:
-                        commandName = "ori";
-                        args = disassembleITypeCommand(command, true);
-                        break;
-                    case 0b111:
-                        commandName = "andi";
-                        args = disassembleITypeCommand(command, true);
-                        break;
-                    case 0b001:
-                        switch (funct7) {
-                            case 0b0000000:
-                                commandName = "slli";
-                                args = disassembleShiftCommand(command);
-                                break;
-                        }
-                        break;
-                    case 0b101:
-                        switch (funct7) {
-                            case 0b0000000:
-                                commandName = "srli";
-                                args = disassembleShiftCommand(command);
-                                break;
-                            case 0b0100000:
-                            case 0b101:
-                                commandName = "srai";
-                                args = disassembleShiftCommand(command);
-                                break;
-                        }
-                        break;
+            case 0b01000:
+                mnemonic = rd == 0 ? Mnemonic.C_NOP : Mnemonic.C_ADDI;
+                format = rd == 0 ? FORMAT_NONE : FORMAT_CI;
+                imm = ciImm;
+                break;
+            case 0b01001:
+                if (!rv64) {
+                    mnemonic = Mnemonic.C_JAL;
+                    format = FORMAT_CJ;
+                    imm = getCompressedJumpOffset(parcel);
+                } else if (rd != 0) {
+                    mnemonic = Mnemonic.C_ADDIW;
+                    format = FORMAT_CI;
+                    imm = ciImm;
                 }
                 break;
-            case 0b0110011:
-                switch (funct7) {
-                    case 0b0000000:
-                        switch (funct3) {
-                            case 0b000:
-                                commandName = "add";
-                                break;
-                            case 0b001:
-                                commandName = "sll";
-                                break;
-                            case 0b010:
-                                commandName = "srt";
-                                break;
-                            case 0b011:
-                                commandName = "sltu";
-                                break;
-                            case 0b100:
-                                commandName = "xor";
-                                break;
-                            case 0b101:
-                                commandName = "srl";
-                                break;
-                            case 0b110:
-                                commandName = "or";
-                                break;
-                            case 0b111:
-                                commandName = "and";
-                                break;
-                        }
-                        args = disassembleRTypeCommand(command);
-                        break;
-                    case 0b0100000:
-                        switch (funct3) {
-                            case 0b000:
-                                commandName = "sub";
-                                break;
-                            case 0b101:
-                                commandName = "sra";
-                                break;
-                        }
-                        args = disassembleRTypeCommand(command);
-                        break;
-                    case 0b0000001:
-                        switch (funct3) {
-                            case 0b000:
-                                commandName = "mul";
-                                break;
-                            case 0b001:
-                                commandName = "mulh";
-                                break;
-                            case 0b010:
-                                commandName = "mulhsu";
-                                break;
-                            case 0b011:
-                                commandName = "mulhu";
-                                break;
-                            case 0b100:
-                                commandName = "div";
-                                break;
-                            case 0b101:
-                                commandName = "divu";
-                                break;
-                            case 0b110:
-                                commandName = "rem";
-                                break;
-                            case 0b111:
-                                commandName = "remu";
-                                break;
+            case 0b01010:
+                mnemonic = Mnemonic.C_LI;
+                format = FORMAT_CI;
+                imm = ciImm;
+                break;
+            case 0b01011:
+                if (rd == 2) {
+                    imm = (parcel >>> 3) & 0b1000000000 | (parcel >>> 2) & 0b10000 | (parcel << 1) & 0b1000000
+                            | (parcel << 4) & 0b110000000 | (parcel << 3) & 0b100000;
+                    imm = imm << 22 >> 22;
+                    mnemonic = imm == 0 ? Mnemonic.UNKNOWN : Mnemonic.C_ADDI16SP;
+                    format = FORMAT_CI;
+                } else {
+                    imm = ciImm << 12;
+                    mnemonic = imm == 0 ? Mnemonic.UNKNOWN : Mnemonic.C_LUI;
+                    format = FORMAT_U;
+                }
+                break;
+            case 0b01100:
+                rd = rs1Prime;
+                format = FORMAT_CI;
+                switch ((parcel >>> 10) & 0b11) {
+                    case 0b00:
+                        mnemonic = shamt > 31 && !rv64 ? Mnemonic.UNKNOWN : Mnemonic.C_SRLI;
+                        imm = shamt;
+                        break;
+                    case 0b01:
+                        mnemonic = shamt > 31 && !rv64 ? Mnemonic.UNKNOWN : Mnemonic.C_SRAI;
+                        imm = shamt;
+                        break;
+                    case 0b10:
+                        mnemonic = Mnemonic.C_ANDI;
+                        imm = ciImm;
+                        break;
+                    case 0b11:
+                        format = FORMAT_CR;
+                        rs2 = rdPrime;
+                        if ((parcel & 0b1000000000000) == 0) {
+                            mnemonic = COMPRESSED_ARITHMETIC[(parcel >>> 5) & 0b11];
+                        } else if (rv64) {
+                            mnemonic = COMPRESSED_ARITHMETIC_WORD[(parcel >>> 5) & 0b11];
                         }
-                        args = disassembleRTypeCommand(command);
                         break;
                 }
                 break;
-            case 0b0001111:
-                switch (funct3) {
-                    case 0b000:
-                        commandName = "fence";
-                        args = disassembleFenceCommand(command);
-                        break;
-                    case 0b001:
-                        commandName = "fence.i";
-                        break;
+            case 0b01101:
+                mnemonic = Mnemonic.C_J;
+                format = FORMAT_CJ;
+                imm = getCompressedJumpOffset(parcel);
+                break;
+            case 0b01110:
+            case 0b01111:
+                mnemonic = (parcel & 0b10000000000000) == 0 ? Mnemonic.C_BEQZ : Mnemonic.C_BNEZ;
+                format = FORMAT_CB;
+                rs1 = rs1Prime;
+                imm = getCompressedBranchOffset(parcel);
+                break;
+            case 0b10000:
+                if (shamt <= 31 || rv64) {
+                    mnemonic = Mnemonic.C_SLLI;
+                    format = FORMAT_CI;
+                    imm = shamt;
                 }
                 break;
-            case 0b1110011:
-                if (funct3 == 0b000) {
-                    switch ((command >>> 20) & 0b111111111111) {
-                        case 0b0000000000000:
-                            commandName = "ecall";
-                            break;
-                        case 0b0000000000001:
-                            commandName = "ebreak";
-                            break;
-                    }
-                    break;
+            case 0b10001:
+                mnemonic = Mnemonic.C_FLDSP;
+                format = FORMAT_FP_LOAD;
+                rs1 = 2;
+                imm = getCompressedDoubleStackOffset(parcel);
+                break;
+            case 0b10010:
+                if (rd != 0) {
+                    mnemonic = Mnemonic.C_LWSP;
+                    format = FORMAT_LOAD;
+                    rs1 = 2;
+                    imm = getCompressedWordStackOffset(parcel);
                 }
-                switch (funct3) {
-                    case 0b001:
-                        commandName = "csrrw";
-                        break;
-                    case 0b010:
-                        commandName = "csrrs";
-                        break;
-                    case 0b011:
-                        commandName = "csrrc";
-                        break;
-                    case 0b101:
-                        commandName = "csrrwi";
-                        break;
-                    case 0b110:
-                        commandName = "csrrso";
-                        break;
-                    case 0b111:
-                        commandName = "csrrci";
-                        break;
+                break;
+            case 0b10011:
+                if (!rv64) {
+                    mnemonic = Mnemonic.C_FLWSP;
+                    format = FORMAT_FP_LOAD;
+                    rs1 = 2;
+                    imm = getCompressedWordStackOffset(parcel);
+                } else if (rd != 0) {
+                    mnemonic = Mnemonic.C_LDSP;
+                    format = FORMAT_LOAD;
+                    rs1 = 2;
+                    imm = getCompressedDoubleStackOffset(parcel);
+                }
+                break;
+            case 0b10100:
+                if ((parcel & 0b1000000000000) == 0) {
+                    if (rs2 != 0) {
+                        mnemonic = Mnemonic.C_MV;
+                        format = FORMAT_CR;
+                    } else if (rd != 0) {
+                        mnemonic = Mnemonic.C_JR;
+                        format = FORMAT_CJR;
+                        rs1 = rd;
+                    }
+                } else if (rs2 != 0) {
+                    mnemonic = Mnemonic.C_ADD;
+                    format = FORMAT_CR;
+                } else if (rd != 0) {
+                    mnemonic = Mnemonic.C_JALR;
+                    format = FORMAT_CJR;
+                    rs1 = rd;
+                } else {
+                    mnemonic = Mnemonic.C_EBREAK;
                 }
-                args = disassembleRTypeCommand(command);
+                break;
+            case 0b10101:
+                mnemonic = Mnemonic.C_FSDSP;
+                format = FORMAT_FP_STORE;
+                rs1 = 2;
+                imm = (parcel >>> 7) & 0b111000 | (parcel >>> 1) & 0b111000000;
+                break;
+            case 0b10110:
+                mnemonic = Mnemonic.C_SWSP;
+                format = FORMAT_STORE;
+                rs1 = 2;
+                imm = (parcel >>> 7) & 0b111100 | (parcel >>> 1) & 0b11000000;
+                break;
+            case 0b10111:
+                mnemonic = rv64 ? Mnemonic.C_SDSP : Mnemonic.C_FSWSP;
+                format = rv64 ? FORMAT_STORE : FORMAT_FP_STORE;
+                rs1 = 2;
+                imm = rv64 ? (parcel >>> 7) & 0b111000 | (parcel >>> 1) & 0b111000000
+                        : (parcel >>> 7) & 0b111100 | (parcel >>> 1) & 0b11000000;
                 break;
         }
-
-        String mark = marks.get(addr);
-        if (mark == null) {
-            mark = "\t\t";
-        } else {
-            mark = "<" + mark + ">";
+        if (mnemonic == Mnemonic.UNKNOWN || format == FORMAT_NONE) {
+            format = FORMAT_NONE;
+            rd = rs1 = rs2 = imm = 0;
+        }
+        out.set(addr, parcel, 2, mnemonic, format, rd, rs1, rs2, imm);
+        if (format == FORMAT_CB || format == FORMAT_CJ) {
+            out.setTarget((addr + imm) & addressMask);
         }
-        return String.format("%08x: %s\t%s\t%s", addr, mark, commandName, args);
     }
 
-    private static String disassembleShiftCommand(int command) {
-        String args;
-
-        int rd = (command >>> 7) & 0b11111;
-        int rs1 = (command >>> 15) & 0b11111;
-        int shamt = (command >>> 20) & 0b11111;
-
-        args = getRegisterName(rd) + ", " + getRegisterName(rs1) + ", " + shamt;
-
-        return args;
+    private static int getCompressedBranchOffset(int parcel) {
+        int imm = (parcel >>> 4) & 0b100000000 | (parcel >>> 7) & 0b11000 | (parcel << 1) & 0b11000000
+                | (parcel >>> 2) & 0b110 | (parcel << 3) & 0b100000;
+        return imm << 23 >> 23;
     }
 
-    private static String disassembleRTypeCommand(int command) {
-        String args;
-
-        int rd = (command >>> 7) & 0b11111;
-        int rs1 = (command >>> 15) & 0b11111;
-        int rs2 = (command >>> 20) & 0b11111;
-
-        args = getRegisterName(rd) + ", " + getRegisterName(rs1) + ", " + getRegisterName(rs2);
+    private static int getCompressedWordOffset(int parcel) {
+        return (parcel >>> 7) & 0b111000 | (parcel >>> 4) & 0b100 | (parcel << 1) & 0b1000000;
+    }
 
-        return args;
+    private static int getCompressedDoubleOffset(int parcel) {
+        return (parcel >>> 7) & 0b111000 | (parcel << 1) & 0b11000000;
     }
 
-    private static String disassembleITypeCommand(int command, boolean signExtended, boolean brackets) {
-        String args;
+    private static int getCompressedWordStackOffset(int parcel) {
+        return (parcel >>> 7) & 0b100000 | (parcel >>> 2) & 0b11100 | (parcel << 4) & 0b11000000;
+    }
 
-        int rd = (command >>> 7) & 0b11111;
-        int rs1 = (command >>> 15) & 0b11111;
-        int imm = (command >>> 20) & 0b111111111111;
+    private static int getCompressedDoubleStackOffset(int parcel) {
+        return (parcel >>> 7) & 0b100000 | (parcel >>> 2) & 0b11000 | (parcel << 4) & 0b111000000;
+    }
 
-        if (signExtended) {
-            imm -= (imm >>> 11) << 12;
-        }
+    private static int getCompressedJumpOffset(int parcel) {
+        int imm = (parcel >>> 1) & 0b100000000000 | (parcel >>> 7) & 0b10000 | (parcel >>> 1) & 0b1100000000
+                | (parcel << 2) & 0b10000000000 | (parcel >>> 1) & 0b1000000 | (parcel << 1) & 0b10000000
+                | (parcel >>> 2) & 0b1110 | (parcel << 3) & 0b100000;
+        return imm << 20 >> 20;
+    }
 
-        if (brackets) {
-            args = getRegisterName(rd) + ", " + imm + "(" + getRegisterName(rs1) + ")";
-        } else {
-            args = getRegisterName(rd) + ", " + getRegisterName(rs1) + ", " + imm;
+    public static String disassemble(int addr, int command, Map<Integer, String> marks) {
+        DecodedInstruction instruction = new DecodedInstruction();
+        RV32.decode(Integer.toUnsignedLong(addr), command, instruction);
+        ByteOutput out = new ByteOutput(64);
+        try {
+            appendInstruction(out, instruction, marks.get(addr), SymbolIndex.EMPTY, LabelSet.EMPTY, OperandTable.ABI);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory output does not throw
         }
-
-        return args;
+        return out.toString();
     }
 
-    private static String disassembleITypeCommand(int command, boolean signExtended) {
-        return disassembleITypeCommand(command, signExtended, false);
+    /**
+     * Writes a listing line for the instruction to {@code out} without creating intermediate objects.
+     * Addresses in {@code labels} without a symbol get a local label {@code L_<address>}.
+     * Branch and jump targets are printed as absolute addresses with the symbol or label there.
+     */
+    public static void appendInstruction(ByteOutput out, DecodedInstruction instruction, SymbolIndex marks,
+                                         LabelSet labels) throws IOException {
+        appendInstruction(out, instruction, marks, labels, OperandTable.ABI);
     }
 
-    private static String disassembleSTypeCommand(int command, boolean brackets) {
-        String args;
+    public static void appendInstruction(ByteOutput out, DecodedInstruction instruction, SymbolIndex marks,
+                                         LabelSet labels, OperandTable operands) throws IOException {
+        int index = marks.indexOf(instruction.getAddress());
+        appendInstruction(out, instruction, index < 0 ? null : marks.getName(index), marks, labels, operands);
+    }
 
-        int imm1 = (command >>> 7) & 0b11111;
-        int rs1 = (command >>> 15) & 0b11111;
-        int rs2 = (command >>> 20) & 0b11111;
-        int imm2 = (command >>> 25) & 0b1111111;
+    private static void appendInstruction(ByteOutput out, DecodedInstruction instruction, String mark,
+                                          SymbolIndex marks, LabelSet labels, OperandTable operands)
+            throws IOException {
+        appendPrefix(out, instruction.getAddress(), mark, labels);
+        out.put(MNEMONIC_NAMES[instruction.getMnemonic().ordinal()]);
+        if (instruction.getFormat() >= FORMAT_AMO && instruction.getFormat() <= FORMAT_LR) {
+            out.put(ORDERING_SUFFIXES[instruction.getImm()]);
+        }
+        out.put('\t');
+        appendOperands(out, instruction, marks, labels, operands);
+    }
 
-        int imm = (imm2 << 5) | imm1;
+    /**
+     * Writes a listing line for bytes that are not decoded: {@code .word}, {@code .half} or {@code .byte}
+     * for a size of 4, 2 or 1 with the little-endian value in hex.
+     */
+    public static void appendData(ByteOutput out, long address, int size, long value, SymbolIndex marks,
+                                  LabelSet labels) throws IOException {
+        int index = marks.indexOf(address);
+        appendPrefix(out, address, index < 0 ? null : marks.getName(index), labels);
+        out.put(size == 4 ? ".word" : size == 2 ? ".half" : ".byte").put('\t').put('0').put('x').putHex(value, 2 * size);
+    }
 
-        if (brackets) {
-            args = getRegisterName(rs2) + ", " + imm + "(" + getRegisterName(rs1) + ")";
+    private static void appendPrefix(ByteOutput out, long address, String mark, LabelSet labels) throws IOException {
+        out.putHex(address, 8).put(':').put(' ');
+        if (mark != null) {
+            out.put('<').put(mark).put('>');
+        } else if (labels.contains(address)) {
+            out.put('<');
+            appendLabel(out, address);
+            out.put('>');
         } else {
-            args = getRegisterName(rs1) + ", " + getRegisterName(rs2) + ", " + imm;
+            out.put('\t').put('\t');
         }
-
-        return args;
+        out.put('\t');
     }
 
-    private static String disassembleBTypeCommand(int command) {
-        String args;
-
-        int imm1 = (command >>> 7) & 0b11111;
-        int rs1 = (command >>> 15) & 0b11111;
-        int rs2 = (command >>> 20) & 0b11111;
-        int imm2 = (command >>> 25) & 0b1111111;
-
-        int imm = (imm2 >>> 6) & 0b1;
-        imm <<= 1;
-        imm |= imm1 & 0b1;
-        imm <<= 6;
-        imm |= imm2 & 0b111111;
-        imm <<= 4;
-        imm |= (imm1 >>> 1) & 0b1111;
-        imm <<= 1;
-
-        args = getRegisterName(rs1) + ", " + getRegisterName(rs2) + ", " + imm;
-
-        return args;
+    public static void appendOperands(ByteOutput out, DecodedInstruction instruction, SymbolIndex marks,
+                                      LabelSet labels) throws IOException {
+        appendOperands(out, instruction, marks, labels, OperandTable.ABI);
     }
 
-    private static String disassembleUTypeCommand(int command) {
-        String args;
-
-        int rd = (command >>> 7) & 0b11111;
-        int imm = command & ~0b111111111111;
-
-        args = getRegisterName(rd) + ", " + Integer.toUnsignedString(imm);
-
-        return args;
+    /**
+     * Writes the operands with register names and immediates from the operand table.
+     */
+    public static void appendOperands(ByteOutput out, DecodedInstruction instruction, SymbolIndex marks,
+                                      LabelSet labels, OperandTable operands) throws IOException {
+        int rd = instruction.getRd();
+        int rs1 = instruction.getRs1();
+        int rs2 = instruction.getRs2();
+        int imm = instruction.getImm();
+
+        switch (instruction.getFormat()) {
+            case FORMAT_R:
+                appendRegisters(out, operands, rd, rs1).put(SEPARATOR).put(operands.getRegister(rs2));
+                break;
+            case FORMAT_I:
+            case FORMAT_I_UNSIGNED:
+            case FORMAT_SHIFT:
+            case FORMAT_SHIFT64:
+                appendRegisters(out, operands, rd, rs1).put(SEPARATOR);
+                OperandTable.putImmediate(out, imm);
+                break;
+            case FORMAT_LOAD:
+                appendAddress(out, operands, rd, imm, rs1);
+                break;
+            case FORMAT_STORE:
+                appendAddress(out, operands, rs2, imm, rs1);
+                break;
+            case FORMAT_B:
+                appendRegisters(out, operands, rs1, rs2).put(SEPARATOR);
+                appendTarget(out, instruction.getTarget(), marks, labels);
+                break;
+            case FORMAT_U:
+                out.put(operands.getRegister(rd)).put(SEPARATOR).putDecimal(imm & 0xffffffffL);
+                break;
+            case FORMAT_J:
+                out.put(operands.getRegister(rd)).put(SEPARATOR);
+                appendTarget(out, instruction.getTarget(), marks, labels);
+                break;
+            case FORMAT_FENCE:
+                OperandTable.putImmediate(out, imm >>> 4).put(SEPARATOR);
+                OperandTable.putImmediate(out, imm & 0b1111);
+                break;
+            case FORMAT_CR:
+                appendRegisters(out, operands, rd, rs2);
+                break;
+            case FORMAT_CI:
+                out.put(operands.getRegister(rd)).put(SEPARATOR);
+                OperandTable.putImmediate(out, imm);
+                break;
+            case FORMAT_CB:
+                out.put(operands.getRegister(rs1)).put(SEPARATOR);
+                appendTarget(out, instruction.getTarget(), marks, labels);
+                break;
+            case FORMAT_CJ:
+                appendTarget(out, instruction.getTarget(), marks, labels);
+                break;
+            case FORMAT_CJR:
+                out.put(operands.getRegister(rs1));
+                break;
+            case FORMAT_FP_LOAD:
+                out.put(operands.getFloatRegister(rd)).put(SEPARATOR);
+                OperandTable.putImmediate(out, imm).put('(').put(operands.getRegister(rs1)).put(')');
+                break;
+            case FORMAT_FP_STORE:
+                out.put(operands.getFloatRegister(rs2)).put(SEPARATOR);
+                OperandTable.putImmediate(out, imm).put('(').put(operands.getRegister(rs1)).put(')');
+                break;
+            case FORMAT_FP_R:
+                appendFloatRegisters(out, operands, rd, rs1).put(SEPARATOR).put(operands.getFloatRegister(rs2));
+                break;
+            case FORMAT_FP_R_RM:
+                appendFloatRegisters(out, operands, rd, rs1).put(SEPARATOR).put(operands.getFloatRegister(rs2));
+                appendRoundingMode(out, imm);
+                break;
+            case FORMAT_FP_R4:
+                appendFloatRegisters(out, operands, rd, rs1).put(SEPARATOR);
+                appendFloatRegisters(out, operands, rs2, imm >>> 3);
+                appendRoundingMode(out, imm & 0b111);
+                break;
+            case FORMAT_FP_UNARY:
+                appendFloatRegisters(out, operands, rd, rs1);
+                appendRoundingMode(out, imm);
+                break;
+            case FORMAT_FP_TO_INT:
+                out.put(operands.getRegister(rd)).put(SEPARATOR).put(operands.getFloatRegister(rs1));
+                appendRoundingMode(out, imm);
+                break;
+            case FORMAT_FP_MOVE_TO_INT:
+                out.put(operands.getRegister(rd)).put(SEPARATOR).put(operands.getFloatRegister(rs1));
+                break;
+            case FORMAT_INT_TO_FP:
+                out.put(operands.getFloatRegister(rd)).put(SEPARATOR).put(operands.getRegister(rs1));
+                appendRoundingMode(out, imm);
+                break;
+            case FORMAT_FP_MOVE_FROM_INT:
+                out.put(operands.getFloatRegister(rd)).put(SEPARATOR).put(operands.getRegister(rs1));
+                break;
+            case FORMAT_FP_COMPARE:
+                out.put(operands.getRegister(rd)).put(SEPARATOR);
+                appendFloatRegisters(out, operands, rs1, rs2);
+                break;
+            case FORMAT_AMO:
+                appendRegisters(out, operands, rd, rs2).put(SEPARATOR)
+                        .put('(').put(operands.getRegister(rs1)).put(')');
+                break;
+            case FORMAT_LR:
+                out.put(operands.getRegister(rd)).put(SEPARATOR).put('(').put(operands.getRegister(rs1)).put(')');
+                break;
+            case FORMAT_CSR:
+                out.put(operands.getRegister(rd)).put(SEPARATOR).put(OperandTable.getCsr(imm)).put(SEPARATOR)
+                        .put(operands.getRegister(rs1));
+                break;
+            case FORMAT_CSRI:
+                out.put(operands.getRegister(rd)).put(SEPARATOR).put(OperandTable.getCsr(imm)).put(SEPARATOR);
+                OperandTable.putImmediate(out, rs1);
+                break;
+        }
     }
 
-    private static String disassembleJTypeCommand(int command) {
-        String args;
-
-        int rd = (command >>> 7) & 0b11111;
-        int imm0 = (command >>> 12) & 0b11111111111111111111;
+    /**
+     * Writes the rounding mode unless it is dynamic, the default.
+     */
+    private static void appendRoundingMode(ByteOutput out, int rm) throws IOException {
+        if (rm != 0b111) {
+            out.put(SEPARATOR).put(OperandTable.getRoundingMode(rm));
+        }
+    }
 
-        int imm = (imm0 >>> 19) & 0b1;
-        imm <<= 8;
-        imm |= imm0 & 0b11111111;
-        imm0 >>>= 8;
-        imm <<= 1;
-        imm |= imm0 & 0b1;
-        imm0 >>>= 1;
-        imm <<= 10;
-        imm |= imm0 & 0b1111111111;
-        imm <<= 1;
+    private static ByteOutput appendFloatRegisters(ByteOutput out, OperandTable operands, int first, int second)
+            throws IOException {
+        return out.put(operands.getFloatRegister(first)).put(SEPARATOR).put(operands.getFloatRegister(second));
+    }
 
-        args = getRegisterName(rd) + ", " + imm;
+    private static void appendTarget(ByteOutput out, long target, SymbolIndex marks, LabelSet labels)
+            throws IOException {
+        out.putHex(target, 8);
+        int index = marks.indexOf(target);
+        if (index >= 0) {
+            out.put(' ').put('<').put(marks.getName(index)).put('>');
+        } else if (labels.contains(target)) {
+            out.put(' ').put('<');
+            appendLabel(out, target);
+            out.put('>');
+        }
+    }
 
-        return args;
+    private static void appendLabel(ByteOutput out, long address) throws IOException {
+        out.put('L').put('_').putHex(address, 8);
     }
 
-    private static String disassembleFenceCommand(int command) {
-        String args = "";
+    private static ByteOutput appendRegisters(ByteOutput out, OperandTable operands, int first, int second)
+            throws IOException {
+        return out.put(operands.getRegister(first)).put(SEPARATOR).put(operands.getRegister(second));
+    }
 
-        int succ = (command >>> 20) & 0b1111;
-        int pred = (command >>> 24) & 0b1111;
+    private static void appendAddress(ByteOutput out, OperandTable operands, int reg, int offset, int base)
+            throws IOException {
+        out.put(operands.getRegister(reg)).put(SEPARATOR);
+        OperandTable.putImmediate(out, offset).put('(').put(operands.getRegister(base)).put(')');
+    }
 
-        args = pred + ", " + succ;
+    private static int getBTypeOffset(int command) {
+        int imm = (command >>> 19) & 0b1000000000000
+                | (command << 4) & 0b100000000000
+                | (command >>> 20) & 0b11111100000
+                | (command >>> 7) & 0b11110;
+        return imm << 19 >> 19;
+    }
 
-        return args;
+    private static int getJTypeOffset(int command) {
+        int imm = (command >>> 11) & 0b100000000000000000000
+                | command & 0b11111111000000000000
+                | (command >>> 9) & 0b100000000000
+                | (command >>> 20) & 0b11111111110;
+        return imm << 11 >> 11;
     }
 
-    private static String getRegisterName(int reg) {
-        if (reg < 0) {
-            throw new IllegalArgumentException("Invalid register number");
-        }
-        switch (reg) {
-            case 0:
-                return "zero";
-            case 1:
-                return "ra";
-            case 2:
-                return "sp";
-            case 3:
-                return "gp";
-            case 4:
-                return "tp";
-        }
-        if (reg <= 7) {
-            return "t" + (reg - 5);
-        }
-        if (reg <= 9) {
-            return "s" + (reg - 8);
-        }
-        if (reg <= 17) {
-            return "a" + (reg - 10);
-        }
-        if (reg <= 27) {
-            return "s" + (reg - 16);
-        }
-        if (reg <= 31) {
-            return "t" + (reg - 25);
-        }
-        throw new IllegalArgumentException("Incorrect register: " + reg);
+    public static String getRegisterName(int reg) {
+        return OperandTable.ABI.getRegisterName(reg);
     }
 }
@@ -0,0 +1,288 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Executable sections of a file split into pieces of code and data, sorted by address in parallel
+ * primitive arrays. Data pieces are the object symbols with a size inside executable sections, they are
+ * printed as data instead of being decoded. Sections overlapping an earlier one are dropped.
+ * Addresses are compared as unsigned.
+ */
+public class SectionLayout {
+    public static final SectionLayout EMPTY = new Builder().build();
+
+    private final long[] sectionAddresses;
+    private final long[] sectionOffsets;
+    private final long[] sectionSizes;
+
+    private final long[] addresses;
+    private final long[] offsets;
+    private final long[] sizes;
+    private final boolean[] data;
+
+    private SectionLayout(long[] sectionAddresses, long[] sectionOffsets, long[] sectionSizes, Pieces pieces) {
+        this.sectionAddresses = sectionAddresses;
+        this.sectionOffsets = sectionOffsets;
+        this.sectionSizes = sectionSizes;
+        this.addresses = Arrays.copyOf(pieces.addresses, pieces.count);
+        this.offsets = Arrays.copyOf(pieces.offsets, pieces.count);
+        this.sizes = Arrays.copyOf(pieces.sizes, pieces.count);
+        this.data = Arrays.copyOf(pieces.data, pieces.count);
+    }
+
+    public int getSectionCount() {
+        return sectionAddresses.length;
+    }
+
+    public long getSectionAddress(int section) {
+        return sectionAddresses[section];
+    }
+
+    public long getSectionEnd(int section) {
+        return sectionAddresses[section] + sectionSizes[section];
+    }
+
+    /**
+     * Returns the section containing the address or -1.
+     */
+    public int sectionIndexOf(long address) {
+        int index = floor(sectionAddresses, sectionAddresses.length, address);
+        return index >= 0 && Long.compareUnsigned(address - sectionAddresses[index], sectionSizes[index]) < 0
+                ? index : -1;
+    }
+
+    /**
+     * Returns the file offset of an address inside the given section.
+     */
+    public long getFileOffset(int section, long address) {
+        return sectionOffsets[section] + (address - sectionAddresses[section]);
+    }
+
+    /**
+     * Lowest address of executable code, 0 if there are no sections.
+     */
+    public long getStart() {
+        return addresses.length == 0 ? 0 : addresses[0];
+    }
+
+    /**
+     * Address after the end of the last section.
+     */
+    public long getEnd() {
+        return addresses.length == 0 ? 0 : getEnd(addresses.length - 1);
+    }
+
+    public int size() {
+        return addresses.length;
+    }
+
+    public long getAddress(int piece) {
+        return addresses[piece];
+    }
+
+    public long getSize(int piece) {
+        return sizes[piece];
+    }
+
+    public long getEnd(int piece) {
+        return addresses[piece] + sizes[piece];
+    }
+
+    public boolean isData(int piece) {
+        return data[piece];
+    }
+
+    /**
+     * Returns the file offset of the start of the piece.
+     */
+    public long getOffset(int piece) {
+        return offsets[piece];
+    }
+
+    /**
+     * Returns the index of the last piece starting at or before the address, or -1.
+     */
+    public int floorIndex(long address) {
+        return floor(addresses, addresses.length, address);
+    }
+
+    /**
+     * Checks that both layouts split {@code [from, to)} into the same code and data pieces.
+     */
+    public boolean sameRange(SectionLayout other, long from, long to) {
+        int i = Math.max(0, floorIndex(from));
+        int j = Math.max(0, other.floorIndex(from));
+        while (true) {
+            boolean end = i == size() || Long.compareUnsigned(addresses[i], to) >= 0;
+            boolean otherEnd = j == other.size() || Long.compareUnsigned(other.addresses[j], to) >= 0;
+            if (end || otherEnd) {
+                return end == otherEnd;
+            }
+            if (Long.compareUnsigned(getEnd(i), from) <= 0) {
+                i++;
+                continue;
+            }
+            if (Long.compareUnsigned(other.getEnd(j), from) <= 0) {
+                j++;
+                continue;
+            }
+            if (data[i] != other.data[j] || maxUnsigned(addresses[i], from) != maxUnsigned(other.addresses[j], from)
+                    || minUnsigned(getEnd(i), to) != minUnsigned(other.getEnd(j), to)) {
+                return false;
+            }
+            i++;
+            j++;
+        }
+    }
+
+    private static int floor(long[] values, int length, long value) {
+        int low = 0;
+        int high = length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compareUnsigned(values[mid], value);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return high;
+    }
+
+    private static long minUnsigned(long a, long b) {
+        return Long.compareUnsigned(a, b) <= 0 ? a : b;
+    }
+
+    private static long maxUnsigned(long a, long b) {
+        return Long.compareUnsigned(a, b) >= 0 ? a : b;
+    }
+
+    public static class Builder {
+        private long[] sectionAddresses = new long[16];
+        private long[] sectionOffsets = new long[16];
+        private long[] sectionSizes = new long[16];
+        private int sectionCount;
+
+        private long[] objectAddresses = new long[16];
+        private long[] objectSizes = new long[16];
+        private int objectCount;
+
+        public Builder addSection(long address, long offset, long size) {
+            if (sectionCount == sectionAddresses.length) {
+                sectionAddresses = Arrays.copyOf(sectionAddresses, 2 * sectionCount);
+                sectionOffsets = Arrays.copyOf(sectionOffsets, 2 * sectionCount);
+                sectionSizes = Arrays.copyOf(sectionSizes, 2 * sectionCount);
+            }
+            sectionAddresses[sectionCount] = address;
+            sectionOffsets[sectionCount] = offset;
+            sectionSizes[sectionCount] = size;
+            sectionCount++;
+            return this;
+        }
+
+        /**
+         * Marks {@code [address, address + size)} as data. Parts outside the sections are ignored.
+         */
+        public Builder addObject(long address, long size) {
+            if (objectCount == objectAddresses.length) {
+                objectAddresses = Arrays.copyOf(objectAddresses, 2 * objectCount);
+                objectSizes = Arrays.copyOf(objectSizes, 2 * objectCount);
+            }
+            objectAddresses[objectCount] = address;
+            objectSizes[objectCount] = size;
+            objectCount++;
+            return this;
+        }
+
+        public SectionLayout build() {
+            Integer[] sectionOrder = sortedOrder(sectionAddresses, sectionCount);
+            long[] addresses = new long[sectionCount];
+            long[] offsets = new long[sectionCount];
+            long[] sizes = new long[sectionCount];
+            int sections = 0;
+            for (int index : sectionOrder) {
+                long address = sectionAddresses[index];
+                long size = sectionSizes[index];
+                if (size <= 0 || Long.compareUnsigned(address + size, address) < 0
+                        || sections > 0 && Long.compareUnsigned(address, addresses[sections - 1] + sizes[sections - 1]) < 0) {
+                    continue;
+                }
+                addresses[sections] = address;
+                offsets[sections] = sectionOffsets[index];
+                sizes[sections] = size;
+                sections++;
+            }
+
+            Pieces pieces = new Pieces();
+            Integer[] objectOrder = sortedOrder(objectAddresses, objectCount);
+            int first = 0;
+            for (int section = 0; section < sections; section++) {
+                long position = addresses[section];
+                long offset = offsets[section] - position;
+                long end = position + sizes[section];
+                while (first < objectCount && Long.compareUnsigned(objectEnd(objectOrder[first]), position) <= 0) {
+                    first++;
+                }
+                for (int i = first; i < objectCount; i++) {
+                    int object = objectOrder[i];
+                    if (Long.compareUnsigned(objectAddresses[object], end) >= 0) {
+                        break;
+                    }
+                    long from = maxUnsigned(objectAddresses[object], position);
+                    long to = minUnsigned(objectEnd(object), end);
+                    if (Long.compareUnsigned(from, to) >= 0) {
+                        continue;
+                    }
+                    if (from != position) {
+                        pieces.add(position, offset + position, from - position, false);
+                    }
+                    pieces.add(from, offset + from, to - from, true);
+                    position = to;
+                }
+                if (position != end) {
+                    pieces.add(position, offset + position, end - position, false);
+                }
+            }
+            return new SectionLayout(Arrays.copyOf(addresses, sections), Arrays.copyOf(offsets, sections),
+                    Arrays.copyOf(sizes, sections), pieces);
+        }
+
+        private long objectEnd(int object) {
+            long end = objectAddresses[object] + objectSizes[object];
+            return Long.compareUnsigned(end, objectAddresses[object]) < 0 ? -1 : end;
+        }
+
+        private static Integer[] sortedOrder(long[] addresses, int count) {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(i -> addresses[i], Long::compareUnsigned));
+            return order;
+        }
+    }
+
+    private static final class Pieces {
+        long[] addresses = new long[16];
+        long[] offsets = new long[16];
+        long[] sizes = new long[16];
+        boolean[] data = new boolean[16];
+        int count;
+
+        void add(long address, long offset, long size, boolean isData) {
+            if (count == addresses.length) {
+                addresses = Arrays.copyOf(addresses, 2 * count);
+                offsets = Arrays.copyOf(offsets, 2 * count);
+                sizes = Arrays.copyOf(sizes, 2 * count);
+                data = Arrays.copyOf(data, 2 * count);
+            }
+            addresses[count] = address;
+            offsets[count] = offset;
+            sizes[count] = size;
+            data[count] = isData;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+/**
+ * Sorted addresses where the sequential sweep over the code passes, recorded every few thousand instructions
+ * while labels are collected. A range listing starts decoding at the nearest one instead of the start of its
+ * section, so the seek is a binary search plus a bounded scan. Addresses are compared as unsigned.
+ */
+public class SeekIndex {
+    public static final SeekIndex EMPTY = new Builder().build();
+
+    private final long[] addresses;
+
+    private SeekIndex(long[] addresses) {
+        this.addresses = addresses;
+    }
+
+    public int size() {
+        return addresses.length;
+    }
+
+    /**
+     * Returns the last recorded address in {@code [from, address]}, or {@code from} if there is none.
+     */
+    public long floor(long from, long address) {
+        int low = 0;
+        int high = addresses.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compareUnsigned(addresses[mid], address);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return address;
+            }
+        }
+        return high >= 0 && Long.compareUnsigned(addresses[high], from) > 0 ? addresses[high] : from;
+    }
+
+    public static class Builder {
+        private long[] addresses = new long[16];
+        private int count;
+
+        /**
+         * Adds an address. Addresses must be added in increasing order.
+         */
+        public Builder add(long address) {
+            if (count == addresses.length) {
+                addresses = Arrays.copyOf(addresses, 2 * count);
+            }
+            addresses[count++] = address;
+            return this;
+        }
+
+        public SeekIndex build() {
+            return new SeekIndex(Arrays.copyOf(addresses, count));
+        }
+    }
+}
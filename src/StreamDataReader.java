@@ -0,0 +1,180 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reader over a stream such as standard input that can not seek. The last {@link #HISTORY} bytes read
+ * from the stream are kept in a ring buffer, so reads and jumps may go back that far. Jumps forward
+ * read and drop the bytes in between. The size of the input is not known until the end is reached.
+ */
+public class StreamDataReader implements DataReader {
+    /**
+     * Bytes that stay readable behind the furthest position read. It covers the distance between the label
+     * sweep and the rendering of the low-memory mode.
+     */
+    public static final int HISTORY = 1 << 23;
+    private static final int MASK = HISTORY - 1;
+    private static final int READ_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final byte[] ring = new byte[HISTORY];
+    private boolean bigEndian = true;
+    /**
+     * Stream offset of the byte after the last one read from the channel.
+     */
+    private long end;
+    private boolean endOfStream;
+    private long position;
+
+    public StreamDataReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int result = getByte(position);
+        position++;
+        return result;
+    }
+
+    @Override
+    public int readInt(int length) throws IOException {
+        if (length > 4) {
+            throw new IllegalArgumentException("Int cannot be more than 4 bytes");
+        }
+        return (int) readLong(length);
+    }
+
+    @Override
+    public long readLong(int length) throws IOException {
+        if (length > 8) {
+            throw new IllegalArgumentException("Long cannot be more than 8 bytes");
+        }
+        long result = get(position, length);
+        position += length;
+        return result;
+    }
+
+    /**
+     * Copies as many bytes as the stream has and throws {@link EOFException} if it ends before the buffer is full.
+     */
+    @Override
+    public void readFully(ByteBuffer target) throws IOException {
+        while (target.hasRemaining()) {
+            if (!fill(position + 1)) {
+                throw new EOFException("Try to read after end file");
+            }
+            checkHistory(position);
+            int index = (int) position & MASK;
+            int length = (int) Math.min(Math.min(target.remaining(), end - position), HISTORY - index);
+            target.put(ring, index, length);
+            position += length;
+        }
+    }
+
+    @Override
+    public void skipBytes(int count) throws IOException {
+        jump(position + count);
+    }
+
+    /**
+     * Moves the reading position. Positions after the end of the stream are allowed, reads there fail.
+     */
+    @Override
+    public void jump(long index) throws IOException {
+        checkHistory(index);
+        fill(index);
+        position = index;
+    }
+
+    @Override
+    public int getByte(long index) throws IOException {
+        return (int) get(index, 1);
+    }
+
+    @Override
+    public int getShort(long index) throws IOException {
+        return (int) get(index, 2);
+    }
+
+    @Override
+    public int getInt(long index) throws IOException {
+        return (int) get(index, 4);
+    }
+
+    @Override
+    public long getLong(long index) throws IOException {
+        return get(index, 8);
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public void enableBigEndian() {
+        bigEndian = true;
+    }
+
+    @Override
+    public void enableLittleEndian() {
+        bigEndian = false;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return fill(position + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long get(long index, int length) throws IOException {
+        if (!fill(index + length)) {
+            throw new EOFException("Try to read after end file");
+        }
+        checkHistory(index);
+        long result = 0;
+        for (int i = 0; i < length; i++) {
+            long x = ring[(int) (index + i) & MASK] & 0xff;
+            if (bigEndian) {
+                result = (result << 8) | x;
+            } else {
+                result |= x << (8 * i);
+            }
+        }
+        return result;
+    }
+
+    private void checkHistory(long index) throws IOException {
+        if (index < end - HISTORY) {
+            throw new IOException("Cannot go back more than " + HISTORY + " bytes in a stream");
+        }
+    }
+
+    /**
+     * Reads from the stream until {@code index} bytes are read. Returns false if it ends before.
+     * Reads are small, so they never drop much more history than the caller asked for.
+     */
+    private boolean fill(long index) throws IOException {
+        while (end < index && !endOfStream) {
+            int start = (int) end & MASK;
+            int read = channel.read(ByteBuffer.wrap(ring, start, Math.min(HISTORY - start, READ_SIZE)));
+            if (read < 0) {
+                endOfStream = true;
+            } else {
+                end += read;
+            }
+        }
+        return end >= index;
+    }
+}
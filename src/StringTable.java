@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ELF string table accessed in place. Names are decoded only when requested,
+ * and recently decoded names are kept in a small direct-mapped cache.
+ * Readers without random access get the table copied into memory once.
+ */
+public class StringTable {
+    private static final int CACHE_SIZE = 256;
+
+    private final DataReader reader;
+    private final long offset;
+    private final int size;
+    private final byte[] bytes;
+    private final Entry[] cache = new Entry[CACHE_SIZE];
+
+    public StringTable(DataReader reader, long offset, int size) throws IOException {
+        if (size <= 0) {
+            throw new IOException("Incorrect string table format");
+        }
+        this.reader = reader;
+        this.offset = offset;
+        this.size = size;
+        if (reader.isRandomAccess()) {
+            bytes = null;
+        } else {
+            bytes = new byte[size];
+            reader.jump(offset);
+            for (int i = 0; i < size; i++) {
+                bytes[i] = (byte) reader.read();
+            }
+        }
+        if (byteAt(size - 1) != 0) {
+            throw new IOException("Incorrect string table format");
+        }
+    }
+
+    /**
+     * Returns the null-terminated name starting at {@code index}.
+     */
+    public String getName(int index) {
+        Entry entry = cache[index & (CACHE_SIZE - 1)];
+        if (entry != null && entry.index == index) {
+            return entry.name;
+        }
+
+        checkIndex(index);
+        byte[] buffer = new byte[32];
+        int length = 0;
+        for (int b = byteAt(index); b != 0; b = byteAt(index + length)) {
+            if (length == buffer.length) {
+                byte[] grown = new byte[2 * length];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+            buffer[length++] = (byte) b;
+        }
+        String name = new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+        cache[index & (CACHE_SIZE - 1)] = new Entry(index, name);
+        return name;
+    }
+
+    /**
+     * Compares the name starting at {@code index} with {@code name} without decoding it.
+     */
+    public boolean matches(int index, String name) {
+        checkIndex(index);
+        if (index + name.length() >= size) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (byteAt(index + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return byteAt(index + name.length()) == 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Name offset " + index + " is outside of the string table");
+        }
+    }
+
+    private int byteAt(int index) {
+        if (bytes != null) {
+            return bytes[index] & 0xff;
+        }
+        try {
+            return reader.getByte(offset + index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Entry {
+        private final int index;
+        private final String name;
+
+        private Entry(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+    }
+}
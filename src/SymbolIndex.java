@@ -0,0 +1,142 @@
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Symbols sorted by address in parallel primitive arrays. Addresses are compared as unsigned,
+ * names are kept as string table offsets and resolved on demand. Lookups do not allocate.
+ */
+public class SymbolIndex {
+    public static final SymbolIndex EMPTY = new Builder().build(offset -> "");
+
+    private final long[] addresses;
+    private final int[] nameOffsets;
+    private final IntFunction<String> names;
+
+    private SymbolIndex(long[] addresses, int[] nameOffsets, IntFunction<String> names) {
+        this.addresses = addresses;
+        this.nameOffsets = nameOffsets;
+        this.names = names;
+    }
+
+    public int size() {
+        return addresses.length;
+    }
+
+    public long getAddress(int index) {
+        return addresses[index];
+    }
+
+    public int getNameOffset(int index) {
+        return nameOffsets[index];
+    }
+
+    public String getName(int index) {
+        return names.apply(nameOffsets[index]);
+    }
+
+    /**
+     * Returns the index of the symbol at exactly this address or -1.
+     */
+    public int indexOf(long address) {
+        int index = floorIndex(address);
+        return index >= 0 && addresses[index] == address ? index : -1;
+    }
+
+    /**
+     * Returns the index of the nearest symbol at or before this address or -1.
+     */
+    public int floorIndex(long address) {
+        int low = 0;
+        int high = addresses.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compareUnsigned(addresses[mid], address);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Returns the name of the symbol at exactly this address or null.
+     */
+    public String get(long address) {
+        int index = indexOf(address);
+        return index < 0 ? null : getName(index);
+    }
+
+    public static class Builder {
+        private long[] addresses = new long[16];
+        private int[] nameOffsets = new int[16];
+        private int size = 0;
+
+        public Builder add(long address, int nameOffset) {
+            if (size == addresses.length) {
+                addresses = Arrays.copyOf(addresses, 2 * size);
+                nameOffsets = Arrays.copyOf(nameOffsets, 2 * size);
+            }
+            addresses[size] = address;
+            nameOffsets[size] = nameOffset;
+            size++;
+            return this;
+        }
+
+        /**
+         * Sorts the symbols by address. If several symbols share an address, the last added one is kept.
+         */
+        public SymbolIndex build(IntFunction<String> names) {
+            int[] order = sortedOrder();
+            long[] sortedAddresses = new long[size];
+            int[] sortedNameOffsets = new int[size];
+            int count = 0;
+            for (int index : order) {
+                if (count > 0 && sortedAddresses[count - 1] == addresses[index]) {
+                    count--;
+                }
+                sortedAddresses[count] = addresses[index];
+                sortedNameOffsets[count] = nameOffsets[index];
+                count++;
+            }
+            return new SymbolIndex(Arrays.copyOf(sortedAddresses, count), Arrays.copyOf(sortedNameOffsets, count), names);
+        }
+
+        /**
+         * Stable LSD radix sort of symbol indices by unsigned address, one byte per pass.
+         * Passes where all addresses share the byte are skipped.
+         */
+        private int[] sortedOrder() {
+            int[] order = new int[size];
+            int[] buffer = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            int[] counts = new int[256];
+            for (int shift = 0; shift < 64; shift += 8) {
+                Arrays.fill(counts, 0);
+                for (int i = 0; i < size; i++) {
+                    counts[(int) (addresses[i] >>> shift) & 0xff]++;
+                }
+                if (size == 0 || counts[(int) (addresses[0] >>> shift) & 0xff] == size) {
+                    continue;
+                }
+                for (int i = 0, sum = 0; i < 256; i++) {
+                    int count = counts[i];
+                    counts[i] = sum;
+                    sum += count;
+                }
+                for (int index : order) {
+                    buffer[counts[(int) (addresses[index] >>> shift) & 0xff]++] = index;
+                }
+                int[] swap = order;
+                order = buffer;
+                buffer = swap;
+            }
+            return order;
+        }
+    }
+}
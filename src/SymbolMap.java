@@ -0,0 +1,130 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Symbols of a raw image from a text map in the format of {@code nm} or {@code nm -S}:
+ * {@code address [size] type name} with hex numbers. Code symbols (types {@code T, t, W, w, i})
+ * become marks like ELF functions, data symbols with a size become marks and data like ELF objects.
+ * Other lines, such as undefined symbols without an address, are skipped.
+ */
+public class SymbolMap {
+    public static final SymbolMap EMPTY = new SymbolMap();
+
+    private long[] addresses = new long[16];
+    private long[] sizes = new long[16];
+    private boolean[] code = new boolean[16];
+    private final List<String> names = new ArrayList<>();
+
+    private SymbolMap() {
+    }
+
+    public static SymbolMap read(String filename) throws IOException {
+        SymbolMap map = new SymbolMap();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(filename), StandardCharsets.ISO_8859_1)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                map.parseLine(line.trim());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Sizes of {@code nm -S} are padded like addresses, so a second field longer than a type letter is a size.
+     */
+    private void parseLine(String line) {
+        String[] fields = line.split("\\s+", 4);
+        if (fields.length < 3 || !isHex(fields[0])) {
+            return;
+        }
+        long size = 0;
+        int type = 1;
+        if (fields.length == 4 && fields[1].length() > 1 && isHex(fields[1])) {
+            size = Long.parseUnsignedLong(fields[1], 16);
+            type = 2;
+        }
+        if (fields[type].length() != 1) {
+            return;
+        }
+        String name = type == 2 ? fields[3] : fields.length == 4 ? fields[2] + " " + fields[3] : fields[2];
+        switch (fields[type].charAt(0)) {
+            case 'T':
+            case 't':
+            case 'W':
+            case 'w':
+            case 'i':
+                add(Long.parseUnsignedLong(fields[0], 16), size, true, name);
+                break;
+            case 'D':
+            case 'd':
+            case 'R':
+            case 'r':
+            case 'B':
+            case 'b':
+            case 'G':
+            case 'g':
+            case 'S':
+            case 's':
+            case 'V':
+            case 'v':
+                if (size > 0) {
+                    add(Long.parseUnsignedLong(fields[0], 16), size, false, name);
+                }
+                break;
+            default:
+        }
+    }
+
+    private void add(long address, long size, boolean isCode, String name) {
+        int count = names.size();
+        if (count == addresses.length) {
+            addresses = Arrays.copyOf(addresses, 2 * count);
+            sizes = Arrays.copyOf(sizes, 2 * count);
+            code = Arrays.copyOf(code, 2 * count);
+        }
+        addresses[count] = address;
+        sizes[count] = size;
+        code[count] = isCode;
+        names.add(name);
+    }
+
+    private static boolean isHex(String value) {
+        if (value.isEmpty() || value.length() > 16) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public long getAddress(int index) {
+        return addresses[index];
+    }
+
+    /**
+     * Size from {@code nm -S}, 0 if the map has none.
+     */
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    public boolean isCode(int index) {
+        return code[index];
+    }
+
+    public String getName(int index) {
+        return names.get(index);
+    }
+}
@@ -0,0 +1,50 @@
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Renders decoded instructions and data as listing lines straight into a byte output.
+ */
+public class TextRenderer implements InstructionVisitor, Flushable {
+    private final ByteOutput out;
+    private final SymbolIndex marks;
+    private final LabelSet labels;
+    private final OperandTable operands;
+
+    public TextRenderer(ByteOutput out, SymbolIndex marks, LabelSet labels) {
+        this(out, marks, labels, OperandTable.ABI);
+    }
+
+    public TextRenderer(ByteOutput out, SymbolIndex marks, LabelSet labels, OperandTable operands) {
+        this.out = out;
+        this.marks = marks;
+        this.labels = labels;
+        this.operands = operands;
+    }
+
+    @Override
+    public void visit(DecodedInstruction instruction) throws IOException {
+        appendLine(out, instruction, marks, labels, operands);
+    }
+
+    @Override
+    public void visitData(long address, int size, long value) throws IOException {
+        RiscVDisassembler.appendData(out, address, size, value, marks, labels);
+        out.putLine();
+    }
+
+    public static void appendLine(ByteOutput out, DecodedInstruction instruction, SymbolIndex marks, LabelSet labels)
+            throws IOException {
+        appendLine(out, instruction, marks, labels, OperandTable.ABI);
+    }
+
+    public static void appendLine(ByteOutput out, DecodedInstruction instruction, SymbolIndex marks, LabelSet labels,
+                                  OperandTable operands) throws IOException {
+        RiscVDisassembler.appendInstruction(out, instruction, marks, labels, operands);
+        out.putLine();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}